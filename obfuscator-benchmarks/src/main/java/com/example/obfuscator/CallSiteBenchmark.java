@@ -0,0 +1,176 @@
+package com.example.obfuscator;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Цена скрытых вызовов в установившемся режиме.
+ *
+ * Генерируется IntUnaryOperator, который вызывает CALLS раз статический метод и
+ * CALLS раз виртуальный метод: в варианте own - метод этого же класса, в варианте
+ * receiver - унаследованный метод получателя другого класса (Receiver.step объявлен
+ * в Counter). Вариант hidden - тот же класс после прохода AsmObfuscator.Pass.CALLS:
+ * вызовы идут через invokedynamic и link$call.
+ * После связывания ConstantCallSite встраивается JIT, поэтому direct и hidden
+ * должны совпадать в пределах погрешности:
+ *   java -jar target/obfuscator-benchmarks-1.0-SNAPSHOT.jar CallSiteBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallSiteBenchmark {
+
+    static final int CALLS = 8;
+
+    @Param({"direct", "hidden"})
+    public String calls;
+
+    @Param({"own", "receiver"})
+    public String target;
+
+    private IntUnaryOperator operator;
+    private int input;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        byte[] bytes = generate(target.equals("receiver"));
+        if (calls.equals("hidden")) {
+            // Проход скрывает только вызовы, цель которых есть в иерархии и доступна
+            ClassHierarchy hierarchy = new ClassHierarchy();
+            for (Class<?> type : new Class<?>[]{CallSiteBenchmark.class, Counter.class, Receiver.class}) {
+                hierarchy.add(classBytes(type));
+            }
+            byte[] hidden = new AsmObfuscator(ObfuscationOptions.defaults(), hierarchy)
+                    .obfuscate(bytes, EnumSet.of(AsmObfuscator.Pass.CALLS));
+            if (Arrays.equals(hidden, bytes)) {
+                throw new IllegalStateException("Проход CALLS не скрыл ни одного вызова");
+            }
+            bytes = hidden;
+        }
+        // Не скрытый класс: link$call ищет цель по имени, а скрытый класс по имени не найти
+        Class<?> type = new ClassLoader(CallSiteBenchmark.class.getClassLoader()) {
+            Class<?> define(byte[] classBytes) {
+                return defineClass(null, classBytes, 0, classBytes.length);
+            }
+        }.define(bytes);
+        operator = (IntUnaryOperator) type.getConstructor().newInstance();
+        input = 42;
+    }
+
+    @Benchmark
+    public int invoke() {
+        return operator.applyAsInt(input);
+    }
+
+    /**
+     * Цель вызовов: статический метод другого класса, как в обычном коде
+     */
+    public static int twice(int x) {
+        return x * 2 + 1;
+    }
+
+    /**
+     * Метод, который получатель наследует
+     */
+    public static class Counter {
+        public int step(int x) {
+            return x ^ 3;
+        }
+    }
+
+    public static final class Receiver extends Counter {
+    }
+
+    private static byte[] classBytes(Class<?> type) throws ReflectiveOperationException {
+        String resource = type.getName().replace('.', '/') + ".class";
+        try (InputStream in = type.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new ClassNotFoundException(resource);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new ClassNotFoundException(resource, e);
+        }
+    }
+
+    /**
+     * applyAsInt(x) поочередно вызывает twice и step, CALLS раз каждый: собственный step
+     * или унаследованный step поля receiver типа Receiver
+     */
+    private static byte[] generate(boolean receiver) {
+        String name = "com/example/obfuscator/CallProbe";
+        ClassWriter cw = new ClassHierarchy().newClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V17, ACC_PUBLIC | ACC_FINAL, name, null, "java/lang/Object",
+                new String[]{"java/util/function/IntUnaryOperator"});
+
+        String receiverType = "com/example/obfuscator/CallSiteBenchmark$Receiver";
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, "receiver", "L" + receiverType + ";", null, null).visitEnd();
+
+        MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitVarInsn(ALOAD, 0);
+        init.visitTypeInsn(NEW, receiverType);
+        init.visitInsn(DUP);
+        init.visitMethodInsn(INVOKESPECIAL, receiverType, "<init>", "()V", false);
+        init.visitFieldInsn(PUTFIELD, name, "receiver", "L" + receiverType + ";");
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        MethodVisitor step = cw.visitMethod(ACC_PUBLIC, "step", "(I)I", null, null);
+        step.visitCode();
+        step.visitVarInsn(ILOAD, 1);
+        step.visitInsn(ICONST_3);
+        step.visitInsn(IXOR);
+        step.visitInsn(IRETURN);
+        step.visitMaxs(0, 0);
+        step.visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "applyAsInt", "(I)I", null, null);
+        mv.visitCode();
+        for (int i = 0; i < CALLS; i++) {
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitMethodInsn(INVOKESTATIC, "com/example/obfuscator/CallSiteBenchmark", "twice", "(I)I", false);
+            mv.visitVarInsn(ISTORE, 1);
+            mv.visitVarInsn(ALOAD, 0);
+            if (receiver) {
+                mv.visitFieldInsn(GETFIELD, name, "receiver", "L" + receiverType + ";");
+            }
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, receiver ? receiverType : name, "step", "(I)I", false);
+            mv.visitVarInsn(ISTORE, 1);
+        }
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.obfuscator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация имен: один генератор на поток, как один генератор на задание
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameGeneratorBenchmark {
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        final NameGenerator names = new NameGenerator();
+    }
+
+    @Benchmark
+    public String nextShortName(PerThread state) {
+        return state.names.nextShortName();
+    }
+
+    @Benchmark
+    public String nextLongName(PerThread state) {
+        return state.names.nextLongName();
+    }
+
+    @Benchmark
+    public String randomName(PerThread state) {
+        return state.names.randomName();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.obfuscator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки горячих путей обфускатора на синтетических классах трех размеров.
+ * Скорость аллокаций по каждому проходу - с профилировщиком: -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObfuscatorBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public SyntheticSources.Size size;
+
+    private String source;
+    private CompilationUnit parsed;
+    private byte[] classBytes;
+
+    @Setup
+    public void setup() {
+        source = SyntheticSources.generate(size);
+        parsed = StaticJavaParser.parse(source);
+        classBytes = SyntheticSources.compile(source);
+    }
+
+    // Полная AST-обфускация: разбор, преобразования, печать и метрики до/после
+    @Benchmark
+    public SimpleObfuscator.Result simpleObfuscate() {
+        return new SimpleObfuscator().obfuscateSource(source);
+    }
+
+    @Benchmark
+    public byte[] asmBasic() {
+        return new AsmObfuscator().obfuscate(classBytes, EnumSet.of(AsmObfuscator.Pass.BASIC));
+    }
+
+    @Benchmark
+    public byte[] asmEnhancedLoops() {
+        return new AsmObfuscator().obfuscate(classBytes, EnumSet.of(AsmObfuscator.Pass.ENHANCED_LOOPS));
+    }
+
+    @Benchmark
+    public byte[] asmRenaming() {
+        return new AsmObfuscator().obfuscate(classBytes, EnumSet.of(AsmObfuscator.Pass.RENAMING));
+    }
+
+    // Все проходы за один разбор класса, как в пакетном режиме
+    @Benchmark
+    public byte[] asmAllPasses() {
+        return new AsmObfuscator().obfuscate(classBytes, EnumSet.allOf(AsmObfuscator.Pass.class));
+    }
+
+    // Метрики по уже разобранному дереву, без стоимости разбора
+    @Benchmark
+    public ObfuscationMetrics.Metrics sourceMetrics() {
+        return ObfuscationMetrics.calculateSourceCodeMetrics(parsed, source);
+    }
+
+    @Benchmark
+    public ObfuscationMetrics.Metrics bytecodeMetrics() {
+        return ObfuscationMetrics.calculateBytecodeMetrics(classBytes);
+    }
+}
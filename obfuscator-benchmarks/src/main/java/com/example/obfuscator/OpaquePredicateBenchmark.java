@@ -0,0 +1,111 @@
+package com.example.obfuscator;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Стоимость одного непрозрачного предиката.
+ *
+ * Для каждого предиката генерируется IntUnaryOperator, в котором предикат
+ * повторяется REPEAT раз подряд; вариант baseline содержит тот же метод без
+ * предикатов. Цена предиката в наносекундах - (score - baseline) / REPEAT,
+ * в тактах - это значение, умноженное на частоту процессора в ГГц.
+ *
+ * Интерпретатор (на нем основана стоимость в OpaquePredicates):
+ *   java -jar target/obfuscator-benchmarks-1.0-SNAPSHOT.jar OpaquePredicateBenchmark -jvmArgsAppend -Xint
+ * После JIT предикаты с jitFoldable = true совпадают с baseline:
+ *   java -jar target/obfuscator-benchmarks-1.0-SNAPSHOT.jar OpaquePredicateBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpaquePredicateBenchmark {
+
+    static final int REPEAT = 16;
+
+    private static final List<OpaquePredicate> PREDICATES = List.of(
+            OpaquePredicates.CONSTANT, OpaquePredicates.CONSECUTIVE_PRODUCT,
+            OpaquePredicates.SQUARE_MOD_4, OpaquePredicates.SEVEN_SQUARES);
+
+    @Param({"baseline", "constant", "consecutive-product", "square-mod-4", "seven-squares"})
+    public String predicate;
+
+    private IntUnaryOperator operator;
+    private int input;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        OpaquePredicate selected = PREDICATES.stream()
+                .filter(p -> p.name().equals(predicate))
+                .findFirst()
+                .orElse(null);
+        Class<?> type = MethodHandles.lookup().defineHiddenClass(generate(selected), true).lookupClass();
+        operator = (IntUnaryOperator) type.getConstructor().newInstance();
+        input = 42;
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return operator.applyAsInt(input);
+    }
+
+    /**
+     * Класс в пакете бенчмарка: applyAsInt(x) выполняет предикат REPEAT раз и возвращает x + 1
+     */
+    private static byte[] generate(OpaquePredicate predicate) {
+        String name = "com/example/obfuscator/OpaqueProbe";
+        ClassWriter cw = new ClassHierarchy().newClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V17, ACC_PUBLIC | ACC_FINAL, name, null, "java/lang/Object",
+                new String[]{"java/util/function/IntUnaryOperator"});
+        cw.visitField(ACC_PRIVATE | ACC_STATIC, "seed", "I", null, null).visitEnd();
+
+        MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "applyAsInt", "(I)I", null, null);
+        mv.visitCode();
+        if (predicate != null) {
+            for (int i = 0; i < REPEAT; i++) {
+                Label taken = new Label();
+                predicate.emitAlwaysTrue(mv, taken, m -> m.visitFieldInsn(GETSTATIC, name, "seed", "I"));
+                mv.visitIincInsn(1, 1000);
+                mv.visitLabel(taken);
+            }
+        }
+        mv.visitIincInsn(1, 1);
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+}
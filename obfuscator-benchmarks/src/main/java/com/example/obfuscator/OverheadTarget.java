@@ -0,0 +1,166 @@
+package com.example.obfuscator;
+
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Метод одного варианта класса, вызываемый в бенчмарке накладных расходов.
+ *
+ * Класс загружается из .class-файла отдельным загрузчиком, поэтому оригинал и
+ * обфусцированные варианты с одинаковым внутренним именем не конфликтуют.
+ * Аргументы и получатель создаются из значений по умолчанию для простых типов.
+ */
+final class OverheadTarget {
+
+    // Системные свойства, через которые харнесс передает цель в форк JMH
+    static final String CLASS_PROPERTY = "overhead.class";
+    static final String METHOD_PROPERTY = "overhead.method";
+
+    final Class<?> type;
+    final Method method;
+
+    private OverheadTarget(Class<?> type, Method method) {
+        this.type = type;
+        this.method = method;
+    }
+
+    static OverheadTarget fromSystemProperties() {
+        String classFile = System.getProperty(CLASS_PROPERTY);
+        String methodKey = System.getProperty(METHOD_PROPERTY);
+        if (classFile == null || methodKey == null) {
+            throw new IllegalStateException("Не заданы свойства -D" + CLASS_PROPERTY + " и -D" + METHOD_PROPERTY);
+        }
+        try {
+            return load(Paths.get(classFile), methodKey);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать " + classFile, e);
+        }
+    }
+
+    static OverheadTarget load(Path classFile, String methodKey) throws IOException {
+        Class<?> type = defineClass(Files.readAllBytes(classFile));
+        for (Method m : type.getDeclaredMethods()) {
+            if (key(m).equals(methodKey)) {
+                return new OverheadTarget(type, m);
+            }
+        }
+        throw new IllegalStateException("Метод " + methodKey + " не найден в " + classFile);
+    }
+
+    static Class<?> defineClass(byte[] classBytes) {
+        return new VariantLoader().define(classBytes);
+    }
+
+    /**
+     * Публичные методы класса, которые можно вызвать с аргументами по умолчанию
+     */
+    static List<String> benchmarkableMethods(Class<?> type) {
+        boolean constructible = receiverConstructor(type) != null;
+        List<String> keys = new ArrayList<>();
+        Arrays.stream(type.getDeclaredMethods())
+                .filter(m -> Modifier.isPublic(m.getModifiers()) && !m.isSynthetic() && !m.isBridge())
+                .filter(m -> Modifier.isStatic(m.getModifiers()) || constructible)
+                .filter(m -> !m.getName().equals("main"))
+                .filter(m -> Arrays.stream(m.getParameterTypes()).allMatch(OverheadTarget::isSupported))
+                .sorted(Comparator.comparing(OverheadTarget::key))
+                .forEach(m -> keys.add(key(m)));
+        return keys;
+    }
+
+    static String key(Method m) {
+        return m.getName() + Type.getMethodDescriptor(m);
+    }
+
+    /**
+     * Дескриптор метода типа (Object receiver, Object[] args)Object
+     */
+    MethodHandle handle() throws IllegalAccessException {
+        int arity = method.getParameterCount();
+        MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = handle.asType(MethodType.genericMethodType(arity))
+                    .asSpreader(Object[].class, arity);
+            return MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asType(MethodType.genericMethodType(arity + 1))
+                .asSpreader(Object[].class, arity);
+    }
+
+    Object newReceiver() throws ReflectiveOperationException {
+        if (Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        Constructor<?> constructor = receiverConstructor(type);
+        if (constructor == null) {
+            throw new IllegalStateException("Нет подходящего публичного конструктора в " + type.getName());
+        }
+        return constructor.newInstance(defaultArguments(constructor.getParameterTypes()));
+    }
+
+    Object[] arguments() {
+        return defaultArguments(method.getParameterTypes());
+    }
+
+    private static Constructor<?> receiverConstructor(Class<?> type) {
+        return Arrays.stream(type.getConstructors())
+                .filter(c -> Arrays.stream(c.getParameterTypes()).allMatch(OverheadTarget::isSupported))
+                .min(Comparator.comparingInt(Constructor::getParameterCount))
+                .orElse(null);
+    }
+
+    private static boolean isSupported(Class<?> parameter) {
+        return defaultValue(parameter) != null;
+    }
+
+    private static Object[] defaultArguments(Class<?>[] parameters) {
+        Object[] values = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            values[i] = defaultValue(parameters[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Небольшие ненулевые значения: циклы по аргументам выполняются, но недолго
+     */
+    private static Object defaultValue(Class<?> type) {
+        if (type == int.class) return 42;
+        if (type == long.class) return 42L;
+        if (type == short.class) return (short) 42;
+        if (type == byte.class) return (byte) 42;
+        if (type == char.class) return 'x';
+        if (type == boolean.class) return true;
+        if (type == double.class) return 42.0;
+        if (type == float.class) return 42.0f;
+        if (type == String.class) return "benchmark";
+        if (type == int[].class) return new int[16];
+        if (type == long[].class) return new long[16];
+        if (type == double[].class) return new double[16];
+        if (type == String[].class) return new String[]{"a", "b", "c"};
+        return null;
+    }
+
+    private static class VariantLoader extends ClassLoader {
+        VariantLoader() {
+            super(OverheadTarget.class.getClassLoader());
+        }
+
+        Class<?> define(byte[] classBytes) {
+            return defineClass(null, classBytes, 0, classBytes.length);
+        }
+    }
+}
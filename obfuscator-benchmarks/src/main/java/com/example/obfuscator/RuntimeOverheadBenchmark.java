@@ -0,0 +1,63 @@
+package com.example.obfuscator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость вызова одного метода одного варианта класса.
+ *
+ * Цель задается системными свойствами форка (их выставляет RuntimeOverheadHarness).
+ * Дескриптор хранится в static final поле: JIT считает его константой и
+ * встраивает вызов так же, как прямой вызов метода.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RuntimeOverheadBenchmark {
+
+    private static final OverheadTarget TARGET = OverheadTarget.fromSystemProperties();
+    private static final MethodHandle HANDLE = handle();
+
+    private Object receiver;
+    private Object[] arguments;
+    private PrintStream originalOut;
+
+    private static MethodHandle handle() {
+        try {
+            return TARGET.handle();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        // Вывод метода не должен измерять скорость консоли
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        receiver = TARGET.newReceiver();
+        arguments = TARGET.arguments();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public Object invoke() throws Throwable {
+        return (Object) HANDLE.invokeExact(receiver, arguments);
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.obfuscator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сравнение скорости исходного класса и его обфусцированных вариантов под JMH.
+ *
+ * Из одного .java собираются те же варианты, что и в консольном режиме:
+ * original (без обфускации), ast (только AST), _obf, _enhanced и _renamed.
+ * Для каждого публичного метода и варианта запускается RuntimeOverheadBenchmark
+ * в отдельном форке, затем печатаются пропускная способность, среднее время
+ * и изменение относительно оригинала.
+ *
+ * Запуск:
+ *   java -cp target/obfuscator-benchmarks-1.0-SNAPSHOT.jar \
+ *        com.example.obfuscator.RuntimeOverheadHarness Input.java [опции]
+ */
+public class RuntimeOverheadHarness {
+
+    private static final String[] VARIANTS = {"original", "ast", "_obf", "_enhanced", "_renamed"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            printUsage();
+            return;
+        }
+
+        Path input = Paths.get(args[0]);
+        Path workDir = Paths.get("target", "overhead");
+        List<String> methodFilter = null;
+        int warmup = 3;
+        int iterations = 5;
+        int seconds = 1;
+
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--methods") && i + 1 < args.length) {
+                methodFilter = Arrays.asList(args[++i].split(","));
+            } else if (args[i].equals("--work-dir") && i + 1 < args.length) {
+                workDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--warmup") && i + 1 < args.length) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--iterations") && i + 1 < args.length) {
+                iterations = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--time") && i + 1 < args.length) {
+                seconds = Integer.parseInt(args[++i]);
+            }
+        }
+
+        Map<String, Path> variants = buildVariants(input, workDir);
+
+        Class<?> original = OverheadTarget.defineClass(Files.readAllBytes(variants.get("original")));
+        List<String> methods = new ArrayList<>();
+        for (String key : OverheadTarget.benchmarkableMethods(original)) {
+            String name = key.substring(0, key.indexOf('('));
+            if (methodFilter == null || methodFilter.contains(name)) {
+                methods.add(key);
+            }
+        }
+
+        System.out.println("=== Накладные расходы обфускации: " + input + " ===");
+        System.out.println("Методов: " + methods.size() + ", вариантов: " + variants.size());
+
+        // Результаты: метод -> вариант -> режим -> оценка
+        Map<String, Map<String, Map<Mode, RunResult>>> results = new LinkedHashMap<>();
+        for (String method : methods) {
+            Map<String, Map<Mode, RunResult>> byVariant = new LinkedHashMap<>();
+            for (Map.Entry<String, Path> variant : variants.entrySet()) {
+                System.out.println("\n→ " + method + " [" + variant.getKey() + "]");
+                byVariant.put(variant.getKey(), run(variant.getValue(), method, warmup, iterations, seconds));
+            }
+            results.put(method, byVariant);
+        }
+
+        printReport(results);
+    }
+
+    /**
+     * Компилирует оригинал и собирает обфусцированные варианты в workDir/<вариант>/
+     */
+    private static Map<String, Path> buildVariants(Path input, Path workDir) throws IOException {
+        String source = Files.readString(input);
+        String className = StaticJavaParser.parse(source)
+                .findFirst(ClassOrInterfaceDeclaration.class, ClassOrInterfaceDeclaration::isPublic)
+                .map(ClassOrInterfaceDeclaration::getNameAsString)
+                .orElseThrow(() -> new IllegalArgumentException("Не найден основной класс в " + input));
+
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        byte[] originalBytes = compileClass(compiler, className, source);
+
+        SimpleObfuscator.Result ast = new SimpleObfuscator().obfuscateSource(source);
+        byte[] astBytes = compileClass(compiler, ast.className, ast.source);
+
+        AsmObfuscator asm = new AsmObfuscator();
+        Map<String, byte[]> bytes = new LinkedHashMap<>();
+        bytes.put("original", originalBytes);
+        bytes.put("ast", astBytes);
+        bytes.put("_obf", asm.obfuscate(astBytes, EnumSet.of(AsmObfuscator.Pass.BASIC)));
+        bytes.put("_enhanced", asm.obfuscate(astBytes,
+                EnumSet.of(AsmObfuscator.Pass.BASIC, AsmObfuscator.Pass.ENHANCED_LOOPS)));
+        bytes.put("_renamed", asm.obfuscate(astBytes, EnumSet.of(AsmObfuscator.Pass.RENAMING)));
+
+        Map<String, Path> files = new LinkedHashMap<>();
+        for (String variant : VARIANTS) {
+            Path target = workDir.resolve(variant).resolve(className + ".class");
+            Files.createDirectories(target.getParent());
+            Files.write(target, bytes.get(variant));
+            files.put(variant, target.toAbsolutePath());
+        }
+        return files;
+    }
+
+    private static byte[] compileClass(InMemoryCompiler compiler, String className, String source) {
+        InMemoryCompiler.Result compiled = compiler.compile(className, source);
+        if (!compiled.success) {
+            throw new IllegalStateException("Ошибка компиляции " + className + ":\n" + compiled.diagnostics);
+        }
+        return compiled.findClass(className);
+    }
+
+    private static Map<Mode, RunResult> run(Path classFile, String method,
+                                            int warmup, int iterations, int seconds) {
+        Map<Mode, RunResult> byMode = new LinkedHashMap<>();
+
+        // Пробный вызов в этой JVM: причину ошибки (например, VerifyError) видно сразу,
+        // а не только как "Benchmark caught the exception" из форка
+        String error = preflight(classFile, method);
+        if (error != null) {
+            System.err.println("✗ Вариант не выполняется: " + error);
+            return byMode;
+        }
+
+        Options options = new OptionsBuilder()
+                .include(RuntimeOverheadBenchmark.class.getName() + ".invoke")
+                .jvmArgsAppend("-D" + OverheadTarget.CLASS_PROPERTY + "=" + classFile,
+                        "-D" + OverheadTarget.METHOD_PROPERTY + "=" + method)
+                .warmupIterations(warmup)
+                .warmupTime(TimeValue.seconds(seconds))
+                .measurementIterations(iterations)
+                .measurementTime(TimeValue.seconds(seconds))
+                .forks(1)
+                .shouldFailOnError(true)
+                .verbosity(VerboseMode.SILENT)
+                .build();
+
+        try {
+            for (RunResult result : new Runner(options).run()) {
+                byMode.put(result.getParams().getMode(), result);
+            }
+        } catch (RunnerException e) {
+            // Например, _renamed не обновляет места вызова переименованных методов
+            System.err.println("✗ Вариант не выполняется: " + e.getMessage());
+        }
+        return byMode;
+    }
+
+    private static String preflight(Path classFile, String method) {
+        PrintStream out = System.out;
+        try {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            OverheadTarget target = OverheadTarget.load(classFile, method);
+            Object receiver = target.newReceiver();
+            target.method.invoke(receiver, target.arguments());
+            return null;
+        } catch (InvocationTargetException e) {
+            return String.valueOf(e.getCause());
+        } catch (Throwable e) {
+            String message = String.valueOf(e);
+            int newline = message.indexOf('\n');
+            return newline > 0 ? message.substring(0, newline) : message;
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static void printReport(Map<String, Map<String, Map<Mode, RunResult>>> results) {
+        System.out.println("\n" + "=".repeat(100));
+        System.out.println("НАКЛАДНЫЕ РАСХОДЫ ОБФУСКАЦИИ (изменение относительно original)");
+        System.out.println("=".repeat(100));
+        System.out.printf("%-40s %-10s %18s %9s %18s %9s%n",
+                "Метод", "Вариант", "Пропускная сп.", "Δ", "Среднее время", "Δ");
+
+        for (Map.Entry<String, Map<String, Map<Mode, RunResult>>> method : results.entrySet()) {
+            Map<Mode, RunResult> baseline = method.getValue().get("original");
+            for (Map.Entry<String, Map<Mode, RunResult>> variant : method.getValue().entrySet()) {
+                Map<Mode, RunResult> byMode = variant.getValue();
+                if (byMode.isEmpty()) {
+                    System.out.printf("%-40s %-10s %s%n", method.getKey(), variant.getKey(), "ошибка выполнения");
+                    continue;
+                }
+                System.out.printf("%-40s %-10s %18s %9s %18s %9s%n",
+                        method.getKey(), variant.getKey(),
+                        format(byMode.get(Mode.Throughput)), delta(byMode, baseline, Mode.Throughput),
+                        format(byMode.get(Mode.AverageTime)), delta(byMode, baseline, Mode.AverageTime));
+            }
+        }
+        System.out.println("=".repeat(100));
+    }
+
+    private static String format(RunResult result) {
+        if (result == null) {
+            return "-";
+        }
+        return String.format("%.3f %s", result.getPrimaryResult().getScore(),
+                result.getPrimaryResult().getScoreUnit());
+    }
+
+    private static String delta(Map<Mode, RunResult> variant, Map<Mode, RunResult> baseline, Mode mode) {
+        if (baseline == null || !baseline.containsKey(mode) || !variant.containsKey(mode)) {
+            return "-";
+        }
+        double base = baseline.get(mode).getPrimaryResult().getScore();
+        double value = variant.get(mode).getPrimaryResult().getScore();
+        return base == 0 ? "-" : String.format("%+.1f%%", (value - base) / base * 100);
+    }
+
+    private static void printUsage() {
+        System.out.println("Использование:");
+        System.out.println("  java -cp obfuscator-benchmarks-1.0-SNAPSHOT.jar "
+                + "com.example.obfuscator.RuntimeOverheadHarness Input.java [опции]");
+        System.out.println();
+        System.out.println("Опции:");
+        System.out.println("  --methods m1,m2        Измерять только перечисленные публичные методы");
+        System.out.println("  --work-dir DIR         Куда складывать варианты классов (по умолчанию target/overhead)");
+        System.out.println("  --warmup N             Итераций прогрева (по умолчанию 3)");
+        System.out.println("  --iterations N         Итераций измерения (по умолчанию 5)");
+        System.out.println("  --time S               Длительность итерации в секундах (по умолчанию 1)");
+    }
+}
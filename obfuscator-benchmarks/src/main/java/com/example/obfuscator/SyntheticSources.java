@@ -0,0 +1,71 @@
+package com.example.obfuscator;
+
+/**
+ * Синтетические классы для бенчмарков: одинаковые по форме методы с циклами,
+ * ветвлениями и switch, отличающиеся только количеством.
+ */
+public final class SyntheticSources {
+
+    public enum Size {
+        SMALL(3),
+        MEDIUM(40),
+        HUGE(400);
+
+        public final int methods;
+
+        Size(int methods) {
+            this.methods = methods;
+        }
+    }
+
+    public static final String CLASS_NAME = "Synthetic";
+
+    private SyntheticSources() {
+    }
+
+    public static String generate(Size size) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("public class ").append(CLASS_NAME).append(" {\n");
+        sb.append("    private int counter;\n");
+        sb.append("    private String label = \"synthetic\";\n\n");
+
+        for (int i = 0; i < size.methods; i++) {
+            sb.append("    public int method").append(i).append("(int limit, int factor) {\n");
+            sb.append("        int sum = 0;\n");
+            sb.append("        for (int j = 0; j < limit; j++) {\n");
+            sb.append("            if (j % 3 == 0 && factor > 0) {\n");
+            sb.append("                sum += j * factor;\n");
+            sb.append("            } else {\n");
+            sb.append("                sum -= j;\n");
+            sb.append("            }\n");
+            sb.append("        }\n");
+            sb.append("        int k = 0;\n");
+            sb.append("        while (k < factor) {\n");
+            sb.append("            k++;\n");
+            sb.append("            sum ^= k;\n");
+            sb.append("        }\n");
+            sb.append("        switch (sum & 3) {\n");
+            sb.append("            case 0: sum++; break;\n");
+            sb.append("            case 1: sum--; break;\n");
+            sb.append("            default: sum += 2;\n");
+            sb.append("        }\n");
+            sb.append("        counter += sum;\n");
+            sb.append("        return sum + label.length();\n");
+            sb.append("    }\n\n");
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Компилирует синтетический класс в памяти и возвращает его байт-код
+     */
+    public static byte[] compile(String source) {
+        InMemoryCompiler.Result compiled = new InMemoryCompiler().compile(CLASS_NAME, source);
+        if (!compiled.success) {
+            throw new IllegalStateException("Синтетический класс не компилируется:\n" + compiled.diagnostics);
+        }
+        return compiled.findClass(CLASS_NAME);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.obfuscator.maven;
+
+import com.example.obfuscator.AsmObfuscator;
+import com.example.obfuscator.ClassDirectoryObfuscator;
+import com.example.obfuscator.JitBudget;
+import com.example.obfuscator.ObfuscationOptions;
+import com.example.obfuscator.ObfuscationSeed;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Обфускация target/classes проходами AsmObfuscator в процессе Maven.
+ *
+ * Цель выполняется в фазе process-classes: классы обфусцируются на месте до того,
+ * как maven-jar-plugin упакует их в фазе package. Обрабатываются только классы,
+ * изменившиеся с прошлой сборки (см. ClassDirectoryObfuscator), поэтому цель можно
+ * не отключать и в рабочих сборках.
+ */
+@Mojo(name = "obfuscate", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class ObfuscateMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File classesDirectory;
+
+    // Состояние инкрементальной обфускации: удаляется вместе с target при mvn clean
+    @Parameter(defaultValue = "${project.build.directory}/obfuscator-state.properties", required = true)
+    private File stateFile;
+
+    // Зависимости проекта: нужны только для иерархии классов
+    @Parameter(defaultValue = "${project.compileClasspathElements}", readonly = true, required = true)
+    private List<String> classpathElements;
+
+    @Parameter(property = "obfuscator.loopObfuscation", defaultValue = "false")
+    private boolean loopObfuscation;
+
+    @Parameter(property = "obfuscator.encryptStrings", defaultValue = "false")
+    private boolean encryptStrings;
+
+    @Parameter(property = "obfuscator.hideCalls", defaultValue = "false")
+    private boolean hideCalls;
+
+    @Parameter(property = "obfuscator.flatten", defaultValue = "false")
+    private boolean flatten;
+
+    // Не давать ложному коду переводить методы через пороги JIT
+    @Parameter(property = "obfuscator.jitBudget", defaultValue = "false")
+    private boolean jitBudget;
+
+    // Главный seed (число или строка): одинаковые классы дают одинаковые байты
+    @Parameter(property = "obfuscator.seed")
+    private String seed;
+
+    @Parameter(property = "obfuscator.threads", defaultValue = "0")
+    private int threads;
+
+    @Parameter(property = "obfuscator.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Обфускация пропущена (obfuscator.skip)");
+            return;
+        }
+        if (!classesDirectory.isDirectory()) {
+            getLog().info("Нет скомпилированных классов: " + classesDirectory);
+            return;
+        }
+
+        ObfuscationOptions options = ObfuscationOptions.defaults()
+                .withPasses(passes())
+                .withClasspath(String.join(File.pathSeparator, classpathElements))
+                .withBudget(jitBudget ? JitBudget.defaults() : JitBudget.disabled())
+                .withSeed(seed == null ? ObfuscationSeed.none() : ObfuscationSeed.parse(seed));
+        if (threads > 0) {
+            options = options.withThreads(threads);
+        }
+        ClassDirectoryObfuscator obfuscator = new ClassDirectoryObfuscator(options);
+
+        long start = System.nanoTime();
+        ClassDirectoryObfuscator.Result result;
+        try {
+            result = obfuscator.obfuscate(classesDirectory.toPath(), stateFile.toPath());
+        } catch (IllegalStateException e) {
+            throw new MojoFailureException(e.getMessage() + " (mvn clean)", e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Не удалось обфусцировать " + classesDirectory, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Обфускация прервана", e);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        getLog().info("Обфусцировано классов: " + result.classesProcessed
+                + ", без изменений: " + result.classesUnchanged + " (" + elapsedMs + " мс)");
+        if (!result.weakenedClasses.isEmpty()) {
+            getLog().warn("Классы без части проходов (порог JIT): " + result.weakenedClasses.size());
+            result.weakenedClasses.stream()
+                    .limit(20)
+                    .forEach(c -> getLog().warn("  " + c));
+        }
+        if (!result.failedClasses.isEmpty()) {
+            getLog().warn("Не удалось обфусцировать (оставлены без изменений): " + result.failedClasses.size());
+            result.failedClasses.stream()
+                    .limit(20)
+                    .forEach(f -> getLog().warn("  " + f));
+        }
+    }
+
+    private Set<AsmObfuscator.Pass> passes() {
+        Set<AsmObfuscator.Pass> passes = EnumSet.of(AsmObfuscator.Pass.BASIC);
+        if (loopObfuscation) {
+            passes.add(AsmObfuscator.Pass.ENHANCED_LOOPS);
+        }
+        if (encryptStrings) {
+            passes.add(AsmObfuscator.Pass.STRINGS);
+        }
+        if (hideCalls) {
+            passes.add(AsmObfuscator.Pass.CALLS);
+        }
+        if (flatten) {
+            passes.add(AsmObfuscator.Pass.FLATTEN);
+        }
+        return passes;
+    }
+}
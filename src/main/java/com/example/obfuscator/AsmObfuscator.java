@@ -1,558 +1,1452 @@
 package com.example.obfuscator;
 
 import org.objectweb.asm.*;
+import org.objectweb.asm.tree.MethodNode;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 import static org.objectweb.asm.Opcodes.*;
 
 public class AsmObfuscator {
 
-    private final Random random = new Random();
+    // Главный seed задания и генератор текущего класса, выводимый из него в начале transform
+    private final ObfuscationSeed seed;
+    private Random random;
+
+    // Горячие методы получают меньше ложного кода или не получают его вовсе
+    private final HotMethodProfile profile;
+
+    // Пороги размера методов, которые ложный код не должен пересекать
+    private final JitBudget budget;
+
+    // Методы, оставленные без изменений из-за бюджета JIT в последнем вызове obfuscate
+    private List<String> budgetExclusions = List.of();
+
+    // Проходы, которые бюджет JIT снял со всего класса в последнем вызове obfuscate
+    private Set<Pass> budgetDroppedPasses = Set.of();
+
+    // Иерархия классов для вычисления stack map frames измененных методов
+    private final ClassHierarchy hierarchy;
+
+    // Непрозрачные предикаты и их бюджет тактов на метод
+    private final OpaquePredicates opaquePredicates;
+
+    // Ограничения уплощения потока управления
+    private final ControlFlowFlattener flattener;
+
+    public AsmObfuscator() {
+        this(ObfuscationOptions.defaults());
+    }
+
+    public AsmObfuscator(ObfuscationOptions options) {
+        this(options, new ClassHierarchy());
+    }
 
     /**
-     * Безопасная обфускация байт-кода с улучшенной обфускацией циклов
+     * Проходы задаются при вызове obfuscate, из options берутся остальные настройки
+     *
+     * @param hierarchy индекс классов входного JAR и библиотек; обфусцируемый класс
+     *                  добавляется в него автоматически, классы JDK читаются по требованию
      */
-    public void obfuscateClass(Path inputClass, Path outputClass) throws IOException {
-        byte[] original = Files.readAllBytes(inputClass);
+    public AsmObfuscator(ObfuscationOptions options, ClassHierarchy hierarchy) {
+        this.profile = options.getProfile();
+        this.budget = options.getBudget();
+        this.hierarchy = hierarchy;
+        this.opaquePredicates = options.getOpaquePredicates();
+        this.flattener = options.getFlattener();
+        this.seed = options.getSeed();
+    }
 
-        ClassReader cr = new ClassReader(original);
-        ClassWriter cw = new ClassWriter(cr, 0);
+    /**
+     * Проходы обфускации байт-кода, которые можно комбинировать в одном проходе по классу
+     */
+    public enum Pass {
+        BASIC,
+        ENHANCED_LOOPS,
+        RENAMING,
+        // Строковые LDC заменяются на ConstantDynamic с расшифровкой при первом разрешении
+        STRINGS,
+        // Вызовы invokestatic/invokevirtual заменяются на invokedynamic с зашифрованной целью
+        CALLS,
+        // Базовые блоки методов без циклов выполняются из диспетчера на tableswitch
+        FLATTEN
+    }
 
-        ClassVisitor cv = new ClassVisitor(ASM9, cw) {
-            @Override
-            public MethodVisitor visitMethod(int access, String name,
-                                             String descriptor, String signature,
-                                             String[] exceptions) {
-                MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
-
-                // Пропускаем конструкторы и специальные методы
-                if (name.equals("<init>") || name.equals("<clinit>") || name.equals("main")) {
-                    return mv;
-                }
+    // Переименование меняет ключи сравнения размеров (имена методов), но не код:
+    // пул копируется, и индексы констант в инструкциях остаются прежними
+    private static final Set<Pass> LATE_PASSES = EnumSet.of(Pass.RENAMING);
 
-                return new MethodVisitor(ASM9, mv) {
-                    private boolean inLoop = false;
-                    private int loopDepth = 0;
-                    private final Random localRandom = new Random();
+    // Проходы, после которых пул констант строится заново. Индексы констант при этом
+    // сдвигаются, и двухбайтовый ldc может стать трехбайтовым ldc_w даже в исключенном методе
+    private static final Set<Pass> POOL_PASSES = EnumSet.of(Pass.STRINGS, Pass.CALLS);
 
-                    @Override
-                    public void visitCode() {
-                        super.visitCode();
+    // Поле seed непрозрачных предикатов, которое проходы добавляют в класс
+    private static final String SEED_FIELD = "opaque$seed";
 
-                        // Добавляем простой ложный код в начале каждого метода
-                        mv.visitInsn(NOP);
-                        mv.visitInsn(NOP);
-                        mv.visitLdcInsn(123456);
-                        mv.visitInsn(POP);
-                        mv.visitLdcInsn(100);
-                        mv.visitLdcInsn(200);
-                        mv.visitInsn(IADD);
-                        mv.visitInsn(POP);
-                    }
+    // Размеры недостижимых веток после предикатов, которые списываются из бюджета метода:
+    // NOP перед переходом и ldc/ldc/ISUB|IAND/POP в цикле (ldc может стать трехбайтовым ldc_w)
+    private static final int JUMP_DECOY_BYTES = 1;
+    private static final int LOOP_DECOY_BYTES = 3 + 3 + 1 + 1;
 
-                    @Override
-                    public void visitJumpInsn(int opcode, Label label) {
-                        // Обнаружение начала циклов
-                        if (opcode == IFEQ || opcode == IFNE || opcode == IFLT ||
-                                opcode == IFGE || opcode == IFGT || opcode == IFLE ||
-                                opcode == IF_ICMPEQ || opcode == IF_ICMPNE) {
-
-                            // Случайно добавляем обфускацию циклов (30% шанс)
-                            if (localRandom.nextDouble() > 0.7) {
-                                addLoopObfuscationBeforeJump(label);
-                            }
-                        }
+    /**
+     * Применяет выбранные проходы за один разбор и одну сериализацию класса:
+     * проходы соединяются в цепочку ClassVisitor под единственным ClassReader.accept
+     */
+    public byte[] obfuscate(byte[] original, Set<Pass> passes) {
+        if (!budget.isEnabled()) {
+            return transform(original, passes, Set.of());
+        }
+
+        // Размеры сравниваются по исходным именам, поэтому переименование выполняется
+        // отдельно, после проверки бюджета. Шифрование строк меняет размер кода (константы
+        // ConstantDynamic занимают пул, и ldc становится ldc_w), поэтому проверяется вместе с остальными
+        Set<Pass> codePasses = EnumSet.noneOf(Pass.class);
+        codePasses.addAll(passes);
+        codePasses.removeAll(LATE_PASSES);
+
+        Map<String, Integer> before = ObfuscationMetrics.methodCodeSizes(original);
+        Set<String> excluded = new HashSet<>();
+        byte[] result = transform(original, codePasses, excluded);
+
+        // Методы, пересекшие порог, исключаются, и класс собирается заново. Исключенный
+        // метод сохраняет исходный размер, если пул не строится заново; иначе его константы
+        // занимают первые индексы пула (см. transform). Если и это не помогло, класс
+        // собирается без перестройки пула. Множество только растет, поэтому цикл конечен
+        List<String> violations;
+        while (!(violations = budget.violations(before, ObfuscationMetrics.methodCodeSizes(result))).isEmpty()) {
+            if (excluded.containsAll(violations) && !codePasses.removeAll(POOL_PASSES)) {
+                break;
+            }
+            excluded.addAll(violations);
+            result = transform(original, codePasses, excluded);
+        }
+        budgetExclusions = List.copyOf(excluded);
+        Set<Pass> dropped = EnumSet.noneOf(Pass.class);
+        dropped.addAll(passes);
+        dropped.retainAll(POOL_PASSES);
+        dropped.removeAll(codePasses);
+        budgetDroppedPasses = Collections.unmodifiableSet(dropped);
+
+        Set<Pass> latePasses = EnumSet.noneOf(Pass.class);
+        latePasses.addAll(passes);
+        latePasses.retainAll(LATE_PASSES);
+        if (!latePasses.isEmpty()) {
+            result = transform(result, latePasses, Set.of());
+        }
+        return result;
+    }
 
-                        super.visitJumpInsn(opcode, label);
-                    }
+    /**
+     * Методы (имя + дескриптор), которые последний вызов obfuscate оставил без изменений,
+     * чтобы не пересечь пороги JIT
+     */
+    public List<String> getBudgetExclusions() {
+        return budgetExclusions;
+    }
 
-                    @Override
-                    public void visitIincInsn(int var, int increment) {
-                        // Обфускация инкрементов (часто используются в циклах)
-                        if (localRandom.nextDouble() > 0.8) {
-                            // Добавляем фиктивный инкремент
-                            mv.visitIincInsn(var + 1, 0); // фиктивный инкремент несуществующей переменной
-                            mv.visitVarInsn(ILOAD, var + 1);
-                            mv.visitInsn(POP);
-                        }
-                        super.visitIincInsn(var, increment);
-                    }
+    /**
+     * Проходы (STRINGS, CALLS), которые последний вызов obfuscate не применил ко всему классу:
+     * исключенный метод пересекал порог JIT и без перестройки пула констант
+     */
+    public Set<Pass> getBudgetDroppedPasses() {
+        return budgetDroppedPasses;
+    }
 
+    private byte[] transform(byte[] original, Set<Pass> passes, Set<String> excluded) {
+        ClassReader cr = new ClassReader(original);
+        hierarchy.add(cr);
+        // Повторный transform того же класса (бюджет JIT) начинает с того же состояния
+        random = seed.derive(cr.getClassName());
+        // Writer без вычислений: неизмененные методы копируются из reader байт в байт.
+        // Вместе с ними копируется и пул констант, поэтому при шифровании строк и скрытии
+        // вызовов пул строится заново - иначе исходные строки и ссылки на методы
+        // остались бы в нем открытым текстом
+        boolean hides = passes.contains(Pass.STRINGS) || passes.contains(Pass.CALLS);
+        ClassWriter cw = hides ? new ClassWriter(0) : new ClassWriter(cr, 0);
+        if (hides && !excluded.isEmpty()) {
+            reserveConstants(cr, cw, excluded);
+        }
+
+        // Цепочка собирается с конца:
+        // reader -> FLATTEN -> BASIC -> ENHANCED_LOOPS -> FRAMES -> CALLS -> RENAMING -> STRINGS -> writer
+        ClassVisitor chain = cw;
+        if (hides) {
+            // Без STRINGS шифруются только имена скрытых вызовов
+            chain = new StringEncryptionPass(chain, passes.contains(Pass.STRINGS), excluded);
+        }
+        if (passes.contains(Pass.RENAMING)) {
+            chain = new RenamingPass(chain);
+        }
+        boolean rewritesCode = passes.contains(Pass.ENHANCED_LOOPS) || passes.contains(Pass.BASIC)
+                || passes.contains(Pass.FLATTEN);
+        PassContext context = rewritesCode || passes.contains(Pass.CALLS)
+                ? new PassContext(cr, excluded, ObfuscationMetrics.methodMaxLocals(original),
+                        ObfuscationMetrics.methodCodeSizes(original))
+                : null;
+        if (passes.contains(Pass.CALLS)) {
+            chain = new CallHidingPass(chain, context);
+        }
+        List<ProfiledPass> codePasses = new ArrayList<>();
+        if (rewritesCode) {
+            chain = new FramesPass(chain, codePasses);
+            if (passes.contains(Pass.ENHANCED_LOOPS)) {
+                chain = new EnhancedLoopsPass(chain, context);
+                codePasses.add((ProfiledPass) chain);
+            }
+            if (passes.contains(Pass.BASIC)) {
+                chain = new BasicPass(chain, context);
+                codePasses.add((ProfiledPass) chain);
+            }
+            // Уплощение видит исходный код: ложные циклы других проходов сделали бы
+            // любой метод неподходящим
+            if (passes.contains(Pass.FLATTEN)) {
+                chain = new FlatteningPass(chain, context);
+                codePasses.add((ProfiledPass) chain);
+            }
+        }
+
+        cr.accept(chain, 0);
+        return cw.toByteArray();
+    }
+
+    /**
+     * Добавляет в новый пул константы однобайтовых ldc исключенных методов раньше
+     * остальных. В исходном классе их индексы не превышали 255, и в новом пуле
+     * они тоже остаются доступны однобайтовому ldc, а метод - прежнего размера
+     */
+    private static void reserveConstants(ClassReader cr, ClassWriter cw, Set<String> excluded) {
+        cr.accept(new ClassVisitor(ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor,
+                                             String signature, String[] exceptions) {
+                if (!excluded.contains(name + descriptor)) {
+                    return null;
+                }
+                return new MethodVisitor(ASM9) {
                     @Override
-                    public void visitVarInsn(int opcode, int var) {
-                        // Случайно добавляем ложные операции с переменными в циклах
-                        if (inLoop && localRandom.nextDouble() > 0.7) {
-                            if (opcode == ILOAD) {
-                                // Дублируем загрузку переменной
-                                super.visitVarInsn(opcode, var);
-                                mv.visitInsn(DUP);
-                                mv.visitInsn(POP);
-                            }
+                    public void visitLdcInsn(Object value) {
+                        if (!(value instanceof Long) && !(value instanceof Double)) {
+                            cw.newConst(value);
                         }
-                        super.visitVarInsn(opcode, var);
                     }
+                };
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
 
-                    @Override
-                    public void visitInsn(int opcode) {
-                        // Добавляем NOP перед некоторыми инструкциями
-                        if (opcode == RETURN || opcode == IRETURN || opcode == ARETURN) {
-                            // Добавляем обфусцированный код перед возвратом
-                            addLoopObfuscationBeforeReturn();
-                        }
+    /**
+     * Безопасная обфускация байт-кода с улучшенной обфускацией циклов
+     */
+    public void obfuscateClass(Path inputClass, Path outputClass) throws IOException {
+        byte[] original = Files.readAllBytes(inputClass);
+        Files.write(outputClass, obfuscateClass(original));
+    }
 
-                        // Случайно добавляем NOP инструкции
-                        if (localRandom.nextDouble() > 0.8) {
-                            mv.visitInsn(NOP);
-                        }
+    public byte[] obfuscateClass(byte[] original) {
+        return obfuscate(original, EnumSet.of(Pass.BASIC));
+    }
 
-                        super.visitInsn(opcode);
-                    }
+    /**
+     * Расширенная версия с усиленной обфускацией циклов
+     */
+    public void obfuscateWithEnhancedLoops(Path inputClass, Path outputClass) throws IOException {
+        byte[] original = Files.readAllBytes(inputClass);
+        Files.write(outputClass, obfuscateWithEnhancedLoops(original));
+    }
 
-                    @Override
-                    public void visitLabel(Label label) {
-                        // Случайно добавляем фиктивные метки для усложнения CFG
-                        if (localRandom.nextDouble() > 0.9) {
-                            Label fakeLabel = new Label();
-                            mv.visitJumpInsn(GOTO, fakeLabel);
-                            mv.visitLabel(fakeLabel);
-                            mv.visitInsn(NOP);
-                        }
-                        super.visitLabel(label);
-                    }
+    public byte[] obfuscateWithEnhancedLoops(byte[] original) {
+        return obfuscate(original, EnumSet.of(Pass.ENHANCED_LOOPS));
+    }
 
-                    @Override
-                    public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
-                        // Обфускация switch (часто используется для оптимизации циклов)
-                        super.visitLookupSwitchInsn(dflt, keys, labels);
+    /**
+     * Альтернативная версия с переименованием
+     */
+    public void obfuscateWithRenaming(Path inputClass, Path outputClass) throws IOException {
+        byte[] original = Files.readAllBytes(inputClass);
+        Files.write(outputClass, obfuscateWithRenaming(original));
+    }
 
-                        // Добавляем фиктивный switch после реального
-                        if (localRandom.nextDouble() > 0.85) {
-                            addFakeSwitch();
-                        }
-                    }
+    public byte[] obfuscateWithRenaming(byte[] original) {
+        return obfuscate(original, EnumSet.of(Pass.RENAMING));
+    }
 
-                    @Override
-                    public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
-                        super.visitTableSwitchInsn(min, max, dflt, labels);
+    /**
+     * Прошел ли класс обфускацию: в нем есть члены, которые добавляют проходы (поле seed
+     * предикатов, помощники циклов, bootstrap-методы строк и вызовов). Повторная
+     * обфускация такого класса объявила бы их второй раз и дала ClassFormatError
+     */
+    public static boolean isObfuscated(byte[] classBytes) {
+        boolean[] found = new boolean[1];
+        new ClassReader(classBytes).accept(new ClassVisitor(ASM9) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor,
+                                           String signature, Object value) {
+                found[0] |= name.equals(SEED_FIELD);
+                return null;
+            }
 
-                        if (localRandom.nextDouble() > 0.85) {
-                            addFakeSwitch();
-                        }
-                    }
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor,
+                                             String signature, String[] exceptions) {
+                found[0] |= name.equals("getFakeIterator") || name.equals("calculateLoopBounds")
+                        || name.equals(CallHidingPass.LINKER_NAME) || name.equals(StringEncryptionPass.BOOTSTRAP_NAME);
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return found[0];
+    }
 
-                    /**
-                     * Добавляет обфускацию перед условными переходами (циклами)
-                     */
-                    private void addLoopObfuscationBeforeJump(Label target) {
-                        // Добавляем фиктивные вычисления, которые не влияют на результат
-                        mv.visitLdcInsn(localRandom.nextInt(1000));
-                        mv.visitLdcInsn(localRandom.nextInt(1000));
-                        mv.visitInsn(IADD);
-                        mv.visitInsn(POP);
+    /**
+     * Общее состояние проходов кода одного класса
+     */
+    private class PassContext {
+        final String className;
+        // Методы, исключенные бюджетом JIT
+        final Set<String> excluded;
+        // max_locals исходных методов: слоты для вставленного кода выделяются после них
+        final Map<String, Integer> maxLocals;
+        // Размеры кода исходных методов: от них считается запас до порогов JIT
+        final Map<String, Integer> codeSizes;
+        // Бюджет предикатов общий для всех проходов одного метода
+        final Map<String, OpaquePredicates.MethodBudget> predicateBudgets = new HashMap<>();
+        // Поле интерфейса может быть только final, и JIT свернет его значение
+        final boolean seedAvailable;
+        final String seedField = SEED_FIELD;
+        boolean seedUsed;
+        boolean seedDeclared;
+
+        PassContext(ClassReader reader, Set<String> excluded, Map<String, Integer> maxLocals,
+                    Map<String, Integer> codeSizes) {
+            this.className = reader.getClassName();
+            this.excluded = excluded;
+            this.maxLocals = maxLocals;
+            this.codeSizes = codeSizes;
+            this.seedAvailable = (reader.getAccess() & ACC_INTERFACE) == 0;
+        }
+
+        /**
+         * Загружает seed предикатов: нефинальное статическое поле, которое никто не пишет.
+         * Оно всегда равно 0, но предикаты верны для любого значения, а JIT не считает
+         * нефинальное поле константой
+         */
+        void loadSeed(MethodVisitor mv) {
+            seedUsed = true;
+            mv.visitFieldInsn(GETSTATIC, className, seedField, "I");
+        }
+
+        /**
+         * Бюджет предикатов метода: такты и байты кода. Байты ограничены запасом исходного
+         * метода до ближайшего порога JIT, чтобы предикаты сами не переводили его через порог
+         */
+        OpaquePredicates.MethodBudget predicates(String name, String descriptor) {
+            return predicateBudgets.computeIfAbsent(name + descriptor, k -> seedAvailable
+                    ? opaquePredicates.forMethod(budget.headroom(codeSizes.getOrDefault(k, 0)))
+                    : OpaquePredicates.none().forMethod(0));
+        }
+    }
 
-                        // Фиктивное условие, которое всегда true
-                        Label fakeLabel = new Label();
-                        mv.visitInsn(ICONST_1);
-                        mv.visitJumpInsn(IFNE, fakeLabel);
-                        mv.visitInsn(NOP); // Этот код никогда не выполняется
-                        mv.visitLabel(fakeLabel);
-                    }
+    /**
+     * Проход, который знает имя класса и может узнать нагретость метода по профилю.
+     * Методы, исключенные бюджетом JIT, считаются горячими и не изменяются
+     */
+    private abstract class ProfiledPass extends ClassVisitor {
+        protected String className;
+        protected final PassContext context;
+
+        ProfiledPass(ClassVisitor next, PassContext context) {
+            super(ASM9, next);
+            this.context = context;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature,
+                          String superName, String[] interfaces) {
+            className = name;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        protected HotMethodProfile.Heat heat(String name, String descriptor) {
+            if (context.excluded.contains(name + descriptor)) {
+                return HotMethodProfile.Heat.HOT;
+            }
+            return profile.heat(className, name, descriptor);
+        }
+
+        /**
+         * Изменит ли проход код метода
+         */
+        abstract boolean touches(String name, String descriptor);
+
+        /**
+         * Есть ли у метода код в исходном классе. Помощники, которые добавляет BasicPass,
+         * никто не вызывает, поэтому следующие проходы их не изменяют
+         */
+        protected boolean isOriginal(String name, String descriptor) {
+            return context.maxLocals.containsKey(name + descriptor);
+        }
+
+        /**
+         * Рабочий int-слот для вставленного кода: первый слот после локальных переменных
+         * исходного метода (только для методов, для которых isOriginal). Каждый вставленный
+         * фрагмент записывает счетчик до чтения и не использует его за своими пределами,
+         * поэтому все вставки метода (в том числе из разных проходов) делят один слот и
+         * max_locals растет не больше чем на 1
+         */
+        protected int scratchSlot(String name, String descriptor) {
+            return context.maxLocals.get(name + descriptor);
+        }
+
+        /**
+         * Генератор одного метода в одном проходе: с seed не зависит от порядка методов
+         */
+        protected Random methodRandom(String name, String descriptor, Pass pass) {
+            return seed.derive(className, name + descriptor, pass.name());
+        }
+
+        // Конструкторы и специальные методы не изменяются
+        protected boolean isSpecial(String name) {
+            return name.equals("<init>") || name.equals("<clinit>") || name.equals("main");
+        }
+
+        @Override
+        public void visitEnd() {
+            // Поле seed объявляет первый проход, дошедший до конца класса после его использования
+            if (context.seedUsed && !context.seedDeclared) {
+                context.seedDeclared = true;
+                FieldVisitor fv = cv.visitField(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC,
+                        context.seedField, "I", null, null);
+                if (fv != null) {
+                    fv.visitEnd();
+                }
+            }
+            super.visitEnd();
+        }
+    }
 
-                    /**
-                     * Добавляет обфускацию перед возвратом из метода
-                     */
-                    private void addLoopObfuscationBeforeReturn() {
-                        // Создаем фиктивный мини-цикл перед возвратом
-                        Label loopStart = new Label();
-                        Label loopEnd = new Label();
+    /**
+     * Пересчитывает stack map frames и max_stack/max_locals только для методов,
+     * которые изменил хотя бы один проход. Такой метод записывается во временный
+     * ClassWriter с COMPUTE_FRAMES (общий суперкласс ищется в ClassHierarchy, а не
+     * через Class.forName) и затем переносится в основной writer уже с новыми frames.
+     * Остальные методы идут прямо в основной writer и копируются как есть
+     */
+    private class FramesPass extends ClassVisitor {
+        private final List<ProfiledPass> passes;
+        private int version;
+        private int classAccess;
+        private String className;
+        private String superName;
+        private String[] interfaces;
+
+        FramesPass(ClassVisitor next, List<ProfiledPass> passes) {
+            super(ASM9, next);
+            this.passes = passes;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature,
+                          String superName, String[] interfaces) {
+            this.version = version;
+            this.classAccess = access;
+            this.className = name;
+            this.superName = superName;
+            this.interfaces = interfaces;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name,
+                                         String descriptor, String signature,
+                                         String[] exceptions) {
+            MethodVisitor target = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (target == null || passes.stream().noneMatch(p -> p.touches(name, descriptor))) {
+                return target;
+            }
 
-                        mv.visitInsn(ICONST_0);
-                        mv.visitVarInsn(ISTORE, 100); // Используем высокий индекс переменной
+            // Frames появились в Java 6; для более старых классов достаточно пересчитать max
+            ClassWriter scratch = hierarchy.newClassWriter(
+                    (version & 0xFFFF) >= V1_6 ? ClassWriter.COMPUTE_FRAMES : ClassWriter.COMPUTE_MAXS);
+            scratch.visit(version, classAccess, className, null, superName, interfaces);
+
+            return new MethodVisitor(ASM9, scratch.visitMethod(access, name, descriptor, signature, exceptions)) {
+                @Override
+                public void visitEnd() {
+                    super.visitEnd();
+                    scratch.visitEnd();
+                    replay(scratch.toByteArray(), target);
+                }
+            };
+        }
+
+        private void replay(byte[] scratchClass, MethodVisitor target) {
+            new ClassReader(scratchClass).accept(new ClassVisitor(ASM9) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name,
+                                                 String descriptor, String signature,
+                                                 String[] exceptions) {
+                    return target;
+                }
+            }, 0);
+        }
+    }
 
-                        mv.visitLabel(loopStart);
-                        mv.visitVarInsn(ILOAD, 100);
-                        mv.visitLdcInsn(1);
-                        mv.visitJumpInsn(IF_ICMPGE, loopEnd);
+    /**
+     * Базовый проход: ложный код в методах, фиктивные поля и вспомогательные методы для циклов
+     */
+    private class BasicPass extends ProfiledPass {
+        // Имена добавленных фиктивных полей: повтор дал бы ClassFormatError при загрузке
+        private final Set<String> dummyFields = new HashSet<>();
+
+        BasicPass(ClassVisitor next, PassContext context) {
+            super(next, context);
+        }
+
+        // HOT - без изменений; WARM - только ложный код на входе, без вставок
+        // на каждой инструкции, переходе и возврате
+        @Override
+        boolean touches(String name, String descriptor) {
+            return !isSpecial(name) && isOriginal(name, descriptor)
+                    && heat(name, descriptor) != HotMethodProfile.Heat.HOT;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name,
+                                         String descriptor, String signature,
+                                         String[] exceptions) {
+            MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (!touches(name, descriptor)) {
+                return mv;
+            }
+            boolean full = heat(name, descriptor) == HotMethodProfile.Heat.COLD;
+            int scratch = scratchSlot(name, descriptor);
+            OpaquePredicates.MethodBudget predicates = context.predicates(name, descriptor);
+
+            return new MethodVisitor(ASM9, mv) {
+                private boolean inLoop = false;
+                private int loopDepth = 0;
+                private final Random localRandom = methodRandom(name, descriptor, Pass.BASIC);
+
+                @Override
+                public void visitCode() {
+                    super.visitCode();
+
+                    // Добавляем простой ложный код в начале каждого метода
+                    mv.visitInsn(NOP);
+                    mv.visitInsn(NOP);
+                    mv.visitLdcInsn(123456);
+                    mv.visitInsn(POP);
+                    mv.visitLdcInsn(100);
+                    mv.visitLdcInsn(200);
+                    mv.visitInsn(IADD);
+                    mv.visitInsn(POP);
+                }
 
-                        // Тело фиктивного цикла
-                        mv.visitLdcInsn("fake_loop");
-                        mv.visitInsn(POP);
+                @Override
+                public void visitJumpInsn(int opcode, Label label) {
+                    // Обнаружение начала циклов
+                    if (full && (opcode == IFEQ || opcode == IFNE || opcode == IFLT ||
+                            opcode == IFGE || opcode == IFGT || opcode == IFLE ||
+                            opcode == IF_ICMPEQ || opcode == IF_ICMPNE)) {
 
-                        mv.visitIincInsn(100, 1);
-                        mv.visitJumpInsn(GOTO, loopStart);
+                        // Случайно добавляем обфускацию циклов (30% шанс)
+                        if (localRandom.nextDouble() > 0.7) {
+                            addLoopObfuscationBeforeJump(label);
+                        }
+                    }
 
-                        mv.visitLabel(loopEnd);
+                    super.visitJumpInsn(opcode, label);
+                }
+
+                @Override
+                public void visitIincInsn(int var, int increment) {
+                    // Обфускация инкрементов (часто используются в циклах)
+                    if (full && localRandom.nextDouble() > 0.8) {
+                        // Фиктивный инкремент на 0 той же переменной: слот уже хранит int,
+                        // поэтому не нужен ни новый слот, ни другой тип в frame
+                        mv.visitIincInsn(var, 0);
+                        mv.visitVarInsn(ILOAD, var);
+                        mv.visitInsn(POP);
                     }
+                    super.visitIincInsn(var, increment);
+                }
 
-                    /**
-                     * Добавляет фиктивный switch statement
-                     */
-                    private void addFakeSwitch() {
-                        Label defaultLabel = new Label();
-                        Label[] labels = new Label[3];
-                        for (int i = 0; i < labels.length; i++) {
-                            labels[i] = new Label();
+                @Override
+                public void visitVarInsn(int opcode, int var) {
+                    // Случайно добавляем ложные операции с переменными в циклах
+                    if (full && inLoop && localRandom.nextDouble() > 0.7) {
+                        if (opcode == ILOAD) {
+                            // Дублируем загрузку переменной
+                            super.visitVarInsn(opcode, var);
+                            mv.visitInsn(DUP);
+                            mv.visitInsn(POP);
                         }
+                    }
+                    super.visitVarInsn(opcode, var);
+                }
 
-                        mv.visitLdcInsn(localRandom.nextInt(3));
-                        mv.visitLookupSwitchInsn(defaultLabel,
-                                new int[]{0, 1, 2}, labels);
-
-                        // Кейс 0
-                        mv.visitLabel(labels[0]);
-                        mv.visitInsn(NOP);
-                        mv.visitJumpInsn(GOTO, defaultLabel);
+                @Override
+                public void visitInsn(int opcode) {
+                    // Добавляем NOP перед некоторыми инструкциями
+                    if (full && (opcode == RETURN || opcode == IRETURN || opcode == ARETURN)) {
+                        // Добавляем обфусцированный код перед возвратом
+                        addLoopObfuscationBeforeReturn();
+                    }
 
-                        // Кейс 1
-                        mv.visitLabel(labels[1]);
+                    // Случайно добавляем NOP инструкции
+                    if (full && localRandom.nextDouble() > 0.8) {
                         mv.visitInsn(NOP);
-                        mv.visitJumpInsn(GOTO, defaultLabel);
+                    }
 
-                        // Кейс 2
-                        mv.visitLabel(labels[2]);
-                        mv.visitInsn(NOP);
-                        mv.visitJumpInsn(GOTO, defaultLabel);
+                    super.visitInsn(opcode);
+                }
 
-                        // Дефолтный кейс
-                        mv.visitLabel(defaultLabel);
+                @Override
+                public void visitLabel(Label label) {
+                    // Случайно добавляем фиктивные метки для усложнения CFG
+                    if (full && localRandom.nextDouble() > 0.9) {
+                        Label fakeLabel = new Label();
+                        mv.visitJumpInsn(GOTO, fakeLabel);
+                        mv.visitLabel(fakeLabel);
                         mv.visitInsn(NOP);
                     }
-                };
-            }
-
-            @Override
-            public FieldVisitor visitField(int access, String name,
-                                           String descriptor,
-                                           String signature, Object value) {
-                // Добавляем фиктивные поля, которые могут использоваться в циклах
-                if ((access & ACC_PRIVATE) != 0 && random.nextDouble() > 0.5) {
-                    super.visitField(ACC_PRIVATE | ACC_STATIC,
-                            "loopCounter" + random.nextInt(1000),
-                            "I", null, null);
+                    super.visitLabel(label);
                 }
-                return super.visitField(access, name, descriptor, signature, value);
-            }
 
-            @Override
-            public void visitEnd() {
-                // Добавляем методы для работы с циклами
-                addLoopHelperMethods();
-                super.visitEnd();
-            }
+                @Override
+                public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+                    // Обфускация switch (часто используется для оптимизации циклов)
+                    super.visitLookupSwitchInsn(dflt, keys, labels);
 
-            /**
-             * Добавляет вспомогательные методы для обфускации циклов
-             */
-            private void addLoopHelperMethods() {
-                // Метод для создания фиктивного итератора
-                addFakeIteratorMethod();
+                    // Добавляем фиктивный switch после реального
+                    if (full && localRandom.nextDouble() > 0.85) {
+                        addFakeSwitch();
+                    }
+                }
 
-                // Метод для создания фиктивных границ цикла
-                addLoopBoundsMethod();
-            }
+                @Override
+                public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+                    super.visitTableSwitchInsn(min, max, dflt, labels);
 
-            private void addFakeIteratorMethod() {
-                MethodVisitor mv = cv.visitMethod(ACC_PRIVATE | ACC_STATIC,
-                        "getFakeIterator", "()Ljava/util/Iterator;",
-                        "()Ljava/util/Iterator<Ljava/lang/Integer;>;", null);
-                if (mv != null) {
-                    mv.visitCode();
-
-                    // Создаем список
-                    mv.visitIntInsn(BIPUSH, 10);
-                    mv.visitTypeInsn(ANEWARRAY, "java/lang/Integer");
-                    mv.visitVarInsn(ASTORE, 0);
-
-                    // Заполняем фиктивными значениями
-                    for (int i = 0; i < 10; i++) {
-                        mv.visitVarInsn(ALOAD, 0);
-                        mv.visitIntInsn(BIPUSH, i);
-                        mv.visitIntInsn(BIPUSH, i * 100);
-                        mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf",
-                                "(I)Ljava/lang/Integer;", false);
-                        mv.visitInsn(AASTORE);
+                    if (full && localRandom.nextDouble() > 0.85) {
+                        addFakeSwitch();
                     }
-
-                    // Преобразуем в список и возвращаем итератор
-                    mv.visitVarInsn(ALOAD, 0);
-                    mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "asList",
-                            "([Ljava/lang/Object;)Ljava/util/List;", false);
-                    mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "iterator",
-                            "()Ljava/util/Iterator;", true);
-
-                    mv.visitInsn(ARETURN);
-                    mv.visitMaxs(3, 1);
-                    mv.visitEnd();
                 }
-            }
 
-            private void addLoopBoundsMethod() {
-                MethodVisitor mv = cv.visitMethod(ACC_PRIVATE | ACC_STATIC,
-                        "calculateLoopBounds", "(II)[I", null, null);
-                if (mv != null) {
-                    mv.visitCode();
+                /**
+                 * Добавляет обфускацию перед условными переходами (циклами)
+                 */
+                private void addLoopObfuscationBeforeJump(Label target) {
+                    // Добавляем фиктивные вычисления, которые не влияют на результат
+                    mv.visitLdcInsn(localRandom.nextInt(1000));
+                    mv.visitLdcInsn(localRandom.nextInt(1000));
+                    mv.visitInsn(IADD);
+                    mv.visitInsn(POP);
+
+                    // Непрозрачное условие, которое всегда true (если позволяет бюджет метода)
+                    OpaquePredicate predicate = predicates.next(localRandom, JUMP_DECOY_BYTES);
+                    if (predicate != null) {
+                        Label fakeLabel = new Label();
+                        predicate.emitAlwaysTrue(mv, fakeLabel, context::loadSeed);
+                        mv.visitInsn(NOP); // Этот код никогда не выполняется
+                        mv.visitLabel(fakeLabel);
+                    }
+                }
 
-                    // Создаем массив из 3 элементов
-                    mv.visitIntInsn(BIPUSH, 3);
-                    mv.visitIntInsn(NEWARRAY, T_INT);
-                    mv.visitVarInsn(ASTORE, 2);
+                /**
+                 * Добавляет обфускацию перед возвратом из метода
+                 */
+                private void addLoopObfuscationBeforeReturn() {
+                    // Создаем фиктивный мини-цикл перед возвратом
+                    Label loopStart = new Label();
+                    Label loopEnd = new Label();
 
-                    // Заполняем массив фиктивными значениями
-                    mv.visitVarInsn(ALOAD, 2);
                     mv.visitInsn(ICONST_0);
-                    mv.visitVarInsn(ILOAD, 0);
-                    mv.visitInsn(IASTORE);
-
-                    mv.visitVarInsn(ALOAD, 2);
-                    mv.visitInsn(ICONST_1);
-                    mv.visitVarInsn(ILOAD, 1);
-                    mv.visitInsn(IASTORE);
-
-                    mv.visitVarInsn(ALOAD, 2);
-                    mv.visitInsn(ICONST_2);
-                    mv.visitInsn(ICONST_1);
-                    mv.visitInsn(IASTORE);
-
-                    mv.visitVarInsn(ALOAD, 2);
-                    mv.visitInsn(ARETURN);
-                    mv.visitMaxs(4, 3);
-                    mv.visitEnd();
+                    mv.visitVarInsn(ISTORE, scratch);
+
+                    mv.visitLabel(loopStart);
+                    mv.visitVarInsn(ILOAD, scratch);
+                    mv.visitLdcInsn(1);
+                    mv.visitJumpInsn(IF_ICMPGE, loopEnd);
+
+                    // Тело фиктивного цикла
+                    mv.visitLdcInsn("fake_loop");
+                    mv.visitInsn(POP);
+
+                    mv.visitIincInsn(scratch, 1);
+                    mv.visitJumpInsn(GOTO, loopStart);
+
+                    mv.visitLabel(loopEnd);
                 }
+
+                /**
+                 * Добавляет фиктивный switch statement
+                 */
+                private void addFakeSwitch() {
+                    Label defaultLabel = new Label();
+                    Label[] labels = new Label[3];
+                    for (int i = 0; i < labels.length; i++) {
+                        labels[i] = new Label();
+                    }
+
+                    // Все ветки ведут в default, поэтому ключ может быть любым; seed не дает
+                    // JIT выбрать ветку заранее
+                    if (context.seedAvailable) {
+                        context.loadSeed(mv);
+                    } else {
+                        mv.visitLdcInsn(localRandom.nextInt(3));
+                    }
+                    mv.visitLookupSwitchInsn(defaultLabel,
+                            new int[]{0, 1, 2}, labels);
+
+                    // Кейс 0
+                    mv.visitLabel(labels[0]);
+                    mv.visitInsn(NOP);
+                    mv.visitJumpInsn(GOTO, defaultLabel);
+
+                    // Кейс 1
+                    mv.visitLabel(labels[1]);
+                    mv.visitInsn(NOP);
+                    mv.visitJumpInsn(GOTO, defaultLabel);
+
+                    // Кейс 2
+                    mv.visitLabel(labels[2]);
+                    mv.visitInsn(NOP);
+                    mv.visitJumpInsn(GOTO, defaultLabel);
+
+                    // Дефолтный кейс
+                    mv.visitLabel(defaultLabel);
+                    mv.visitInsn(NOP);
+                }
+            };
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name,
+                                       String descriptor,
+                                       String signature, Object value) {
+            // Добавляем фиктивные поля, которые могут использоваться в циклах
+            if ((access & ACC_PRIVATE) != 0 && random.nextDouble() > 0.5) {
+                String dummy;
+                do {
+                    dummy = "loopCounter" + random.nextInt(1000);
+                } while (!dummyFields.add(dummy));
+                super.visitField(ACC_PRIVATE | ACC_STATIC, dummy, "I", null, null);
             }
-        };
+            return super.visitField(access, name, descriptor, signature, value);
+        }
+
+        @Override
+        public void visitEnd() {
+            // Добавляем методы для работы с циклами
+            addLoopHelperMethods();
+            super.visitEnd();
+        }
+
+        /**
+         * Добавляет вспомогательные методы для обфускации циклов
+         */
+        private void addLoopHelperMethods() {
+            // Метод для создания фиктивного итератора
+            addFakeIteratorMethod();
+
+            // Метод для создания фиктивных границ цикла
+            addLoopBoundsMethod();
+        }
+
+        private void addFakeIteratorMethod() {
+            MethodVisitor mv = cv.visitMethod(ACC_PRIVATE | ACC_STATIC,
+                    "getFakeIterator", "()Ljava/util/Iterator;",
+                    "()Ljava/util/Iterator<Ljava/lang/Integer;>;", null);
+            if (mv != null) {
+                mv.visitCode();
+
+                // Создаем список
+                mv.visitIntInsn(BIPUSH, 10);
+                mv.visitTypeInsn(ANEWARRAY, "java/lang/Integer");
+                mv.visitVarInsn(ASTORE, 0);
+
+                // Заполняем фиктивными значениями
+                for (int i = 0; i < 10; i++) {
+                    mv.visitVarInsn(ALOAD, 0);
+                    mv.visitIntInsn(BIPUSH, i);
+                    mv.visitIntInsn(BIPUSH, i * 100);
+                    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf",
+                            "(I)Ljava/lang/Integer;", false);
+                    mv.visitInsn(AASTORE);
+                }
+
+                // Преобразуем в список и возвращаем итератор
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "asList",
+                        "([Ljava/lang/Object;)Ljava/util/List;", false);
+                mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "iterator",
+                        "()Ljava/util/Iterator;", true);
 
-        cr.accept(cv, 0);
-        byte[] modified = cw.toByteArray();
-        Files.write(outputClass, modified);
+                mv.visitInsn(ARETURN);
+                mv.visitMaxs(3, 1);
+                mv.visitEnd();
+            }
+        }
+
+        private void addLoopBoundsMethod() {
+            MethodVisitor mv = cv.visitMethod(ACC_PRIVATE | ACC_STATIC,
+                    "calculateLoopBounds", "(II)[I", null, null);
+            if (mv != null) {
+                mv.visitCode();
+
+                // Создаем массив из 3 элементов
+                mv.visitIntInsn(BIPUSH, 3);
+                mv.visitIntInsn(NEWARRAY, T_INT);
+                mv.visitVarInsn(ASTORE, 2);
+
+                // Заполняем массив фиктивными значениями
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitInsn(ICONST_0);
+                mv.visitVarInsn(ILOAD, 0);
+                mv.visitInsn(IASTORE);
+
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitInsn(ICONST_1);
+                mv.visitVarInsn(ILOAD, 1);
+                mv.visitInsn(IASTORE);
+
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitInsn(ICONST_2);
+                mv.visitInsn(ICONST_1);
+                mv.visitInsn(IASTORE);
+
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitInsn(ARETURN);
+                mv.visitMaxs(4, 3);
+                mv.visitEnd();
+            }
+        }
     }
 
     /**
-     * Расширенная версия с усиленной обфускацией циклов
+     * Уплощение потока управления холодных методов через ControlFlowFlattener.
+     * Метод собирается в MethodNode целиком, уплощается, если подходит по
+     * ограничениям, и передается дальше по цепочке
      */
-    public void obfuscateWithEnhancedLoops(Path inputClass, Path outputClass) throws IOException {
-        byte[] original = Files.readAllBytes(inputClass);
-
-        ClassReader cr = new ClassReader(original);
-        ClassWriter cw = new ClassWriter(cr, 0);
-
-        ClassVisitor cv = new ClassVisitor(ASM9, cw) {
-            @Override
-            public MethodVisitor visitMethod(int access, String name,
-                                             String descriptor, String signature,
-                                             String[] exceptions) {
-                MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
-
-                // Пропускаем конструкторы и специальные методы
-                if (name.equals("<init>") || name.equals("<clinit>") || name.equals("main")) {
-                    return mv;
+    private class FlatteningPass extends ProfiledPass {
+        FlatteningPass(ClassVisitor next, PassContext context) {
+            super(next, context);
+        }
+
+        // Диспетчер стоит несколько инструкций на каждый переход между блоками
+        @Override
+        boolean touches(String name, String descriptor) {
+            return !isSpecial(name) && isOriginal(name, descriptor)
+                    && heat(name, descriptor) == HotMethodProfile.Heat.COLD;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name,
+                                         String descriptor, String signature,
+                                         String[] exceptions) {
+            MethodVisitor next = super.visitMethod(access, name, descriptor, signature, exceptions);
+            Integer codeSize = context.codeSizes.get(name + descriptor);
+            if (next == null || codeSize == null || !touches(name, descriptor)) {
+                return next;
+            }
+            // Слот scratch занят вставками других проходов, номер блока живет в следующем
+            int stateSlot = scratchSlot(name, descriptor) + 1;
+            Random random = methodRandom(name, descriptor, Pass.FLATTEN);
+            return new MethodNode(ASM9, access, name, descriptor, signature, exceptions) {
+                @Override
+                public void visitEnd() {
+                    flattener.flatten(className, this, codeSize, stateSlot, hierarchy, random);
+                    accept(next);
                 }
+            };
+        }
+    }
 
-                return new MethodVisitor(ASM9, mv) {
-                    private int fakeLoopCounter = 0;
+    /**
+     * Проход усиленной обфускации циклов
+     */
+    private class EnhancedLoopsPass extends ProfiledPass {
+        EnhancedLoopsPass(ClassVisitor next, PassContext context) {
+            super(next, context);
+        }
+
+        // Фиктивные циклы и усложненные условия выполняются на каждом вызове и
+        // каждой итерации, поэтому в HOT и WARM методы они не вставляются
+        @Override
+        boolean touches(String name, String descriptor) {
+            return !isSpecial(name) && isOriginal(name, descriptor)
+                    && heat(name, descriptor) == HotMethodProfile.Heat.COLD;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name,
+                                         String descriptor, String signature,
+                                         String[] exceptions) {
+            MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (!touches(name, descriptor)) {
+                return mv;
+            }
+            int scratch = scratchSlot(name, descriptor);
+            OpaquePredicates.MethodBudget predicates = context.predicates(name, descriptor);
+            Random random = methodRandom(name, descriptor, Pass.ENHANCED_LOOPS);
 
-                    @Override
-                    public void visitCode() {
-                        super.visitCode();
+            return new MethodVisitor(ASM9, mv) {
+                private int fakeLoopCounter = 0;
 
-                        // Добавляем фиктивный цикл в начале метода
-                        addDummyLoopAtStart();
-                    }
+                @Override
+                public void visitCode() {
+                    super.visitCode();
 
-                    @Override
-                    public void visitJumpInsn(int opcode, Label label) {
-                        // Преобразуем простые циклы в сложные
-                        if (isLoopCondition(opcode)) {
-                            transformLoopStructure(opcode, label);
-                        } else {
-                            super.visitJumpInsn(opcode, label);
-                        }
-                    }
+                    // Добавляем фиктивный цикл в начале метода
+                    addDummyLoopAtStart();
+                }
 
-                    @Override
-                    public void visitInsn(int opcode) {
-                        // Перед возвратом добавляем фиктивный цикл
-                        if (opcode == RETURN || opcode == IRETURN || opcode == ARETURN) {
-                            addDummyLoopBeforeReturn();
-                        }
-                        super.visitInsn(opcode);
+                @Override
+                public void visitJumpInsn(int opcode, Label label) {
+                    // Преобразуем простые циклы в сложные
+                    if (isLoopCondition(opcode)) {
+                        transformLoopStructure(opcode, label);
+                    } else {
+                        super.visitJumpInsn(opcode, label);
                     }
+                }
 
-                    /**
-                     * Проверяет, является ли инструкция условием цикла
-                     */
-                    private boolean isLoopCondition(int opcode) {
-                        return opcode == IFEQ || opcode == IFNE || opcode == IFLT ||
-                                opcode == IFGE || opcode == IFGT || opcode == IFLE ||
-                                opcode == IF_ICMPEQ || opcode == IF_ICMPNE ||
-                                opcode == IF_ICMPLT || opcode == IF_ICMPGE ||
-                                opcode == IF_ICMPGT || opcode == IF_ICMPLE;
+                @Override
+                public void visitInsn(int opcode) {
+                    // Перед возвратом добавляем фиктивный цикл
+                    if (opcode == RETURN || opcode == IRETURN || opcode == ARETURN) {
+                        addDummyLoopBeforeReturn();
                     }
+                    super.visitInsn(opcode);
+                }
 
-                    /**
-                     * Преобразует структуру цикла (ИСПРАВЛЕННАЯ ВЕРСИЯ)
-                     */
-                    private void transformLoopStructure(int originalOpcode, Label originalLabel) {
-                        // Вместо простого перехода создаем сложную структуру
-                        Label fakeExit = new Label();
+                /**
+                 * Проверяет, является ли инструкция условием цикла
+                 */
+                private boolean isLoopCondition(int opcode) {
+                    return opcode == IFEQ || opcode == IFNE || opcode == IFLT ||
+                            opcode == IFGE || opcode == IFGT || opcode == IFLE ||
+                            opcode == IF_ICMPEQ || opcode == IF_ICMPNE ||
+                            opcode == IF_ICMPLT || opcode == IF_ICMPGE ||
+                            opcode == IF_ICMPGT || opcode == IF_ICMPLE;
+                }
+
+                /**
+                 * Преобразует структуру цикла (ИСПРАВЛЕННАЯ ВЕРСИЯ)
+                 */
+                private void transformLoopStructure(int originalOpcode, Label originalLabel) {
+                    // Перед переходом ставится непрозрачный предикат, если он помещается
+                    // в бюджет метода. Операнды исходного перехода уже на стеке, поэтому
+                    // все пути ведут к нему: обход перехода оставил бы их на стеке, и
+                    // frames в точке слияния не совпали бы
+                    OpaquePredicate predicate = predicates.next(random, LOOP_DECOY_BYTES);
+                    if (predicate != null) {
                         Label fakeContinue = new Label();
+                        predicate.emitAlwaysTrue(mv, fakeContinue, context::loadSeed);
 
-                        // Создаем сложное условие
-                        int rand1 = random.nextInt(1000);
-                        int rand2 = random.nextInt(1000);
+                        // Недостижимая ветка с ложными вычислениями
+                        mv.visitLdcInsn(random.nextInt(1000));
+                        mv.visitLdcInsn(random.nextInt(1000));
+                        mv.visitInsn(random.nextBoolean() ? ISUB : IAND);
+                        mv.visitInsn(POP);
 
-                        mv.visitLdcInsn(rand1);
-                        mv.visitLdcInsn(rand2);
+                        mv.visitLabel(fakeContinue);
+                    }
 
-                        if (random.nextBoolean()) {
-                            // Используем сравнение через вычитание
-                            mv.visitInsn(ISUB);
-                            mv.visitInsn(DUP);
-                            mv.visitInsn(POP); // Удаляем лишнюю копию
-                            Label fakeElse = new Label();
-                            mv.visitJumpInsn(IFEQ, fakeElse); // Если равны
-                            mv.visitInsn(ICONST_1);
-                            mv.visitJumpInsn(IFNE, fakeContinue);
-                            mv.visitLabel(fakeElse);
-                            mv.visitInsn(ICONST_1);
-                            mv.visitJumpInsn(IFNE, fakeContinue);
-                        } else {
-                            // Используем битовую операцию
-                            mv.visitInsn(IAND);
-                            Label fakeElse = new Label();
-                            mv.visitJumpInsn(IFEQ, fakeElse);
-                            mv.visitInsn(ICONST_1);
-                            mv.visitJumpInsn(IFNE, fakeContinue);
-                            mv.visitLabel(fakeElse);
-                            mv.visitInsn(ICONST_1);
-                            mv.visitJumpInsn(IFNE, fakeContinue);
-                        }
+                    // Оригинальный переход
+                    super.visitJumpInsn(originalOpcode, originalLabel);
+                }
 
-                        mv.visitJumpInsn(GOTO, fakeExit);
+                /**
+                 * Добавляет фиктивный цикл в начале метода
+                 */
+                private void addDummyLoopAtStart() {
+                    if (random.nextDouble() > 0.7) {
+                        fakeLoopCounter++;
+                        Label loopStart = new Label();
+                        Label loopEnd = new Label();
 
-                        mv.visitLabel(fakeContinue);
-                        // Оригинальный переход
-                        super.visitJumpInsn(originalOpcode, originalLabel);
+                        // Инициализация фиктивного счетчика
+                        mv.visitInsn(ICONST_0);
+                        mv.visitVarInsn(ISTORE, scratch);
 
-                        mv.visitLabel(fakeExit);
-                    }
+                        mv.visitLabel(loopStart);
+                        mv.visitVarInsn(ILOAD, scratch);
+                        mv.visitLdcInsn(3); // 3 итерации
+                        mv.visitJumpInsn(IF_ICMPGE, loopEnd);
 
-                    /**
-                     * Добавляет фиктивный цикл в начале метода
-                     */
-                    private void addDummyLoopAtStart() {
-                        if (random.nextDouble() > 0.7) {
-                            fakeLoopCounter++;
-                            Label loopStart = new Label();
-                            Label loopEnd = new Label();
-
-                            // Инициализация фиктивного счетчика
-                            mv.visitInsn(ICONST_0);
-                            mv.visitVarInsn(ISTORE, 100 + fakeLoopCounter);
-
-                            mv.visitLabel(loopStart);
-                            mv.visitVarInsn(ILOAD, 100 + fakeLoopCounter);
-                            mv.visitLdcInsn(3); // 3 итерации
-                            mv.visitJumpInsn(IF_ICMPGE, loopEnd);
-
-                            // Тело фиктивного цикла
-                            mv.visitFieldInsn(GETSTATIC, "java/lang/System", "err", "Ljava/io/PrintStream;");
-                            mv.visitLdcInsn("Dummy loop iteration: " + fakeLoopCounter);
-                            mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println",
-                                    "(Ljava/lang/String;)V", false);
-
-                            // Инкремент
-                            mv.visitIincInsn(100 + fakeLoopCounter, 1);
-                            mv.visitJumpInsn(GOTO, loopStart);
-
-                            mv.visitLabel(loopEnd);
-                        }
+                        // Тело фиктивного цикла
+                        mv.visitFieldInsn(GETSTATIC, "java/lang/System", "err", "Ljava/io/PrintStream;");
+                        mv.visitLdcInsn("Dummy loop iteration: " + fakeLoopCounter);
+                        mv.visitMethodInsn(INVOKEVIRTUAL, "java/io/PrintStream", "println",
+                                "(Ljava/lang/String;)V", false);
+
+                        // Инкремент
+                        mv.visitIincInsn(scratch, 1);
+                        mv.visitJumpInsn(GOTO, loopStart);
+
+                        mv.visitLabel(loopEnd);
                     }
+                }
 
-                    /**
-                     * Добавляет фиктивный цикл перед возвратом
-                     */
-                    private void addDummyLoopBeforeReturn() {
-                        if (random.nextDouble() > 0.5) {
-                            Label cleanupLoop = new Label();
-                            Label cleanupEnd = new Label();
+                /**
+                 * Добавляет фиктивный цикл перед возвратом
+                 */
+                private void addDummyLoopBeforeReturn() {
+                    if (random.nextDouble() > 0.5) {
+                        Label cleanupLoop = new Label();
+                        Label cleanupEnd = new Label();
 
-                            // Фиктивный cleanup цикл
-                            mv.visitInsn(ICONST_0);
-                            mv.visitVarInsn(ISTORE, 200);
+                        // Фиктивный cleanup цикл
+                        mv.visitInsn(ICONST_0);
+                        mv.visitVarInsn(ISTORE, scratch);
 
-                            mv.visitLabel(cleanupLoop);
-                            mv.visitVarInsn(ILOAD, 200);
-                            mv.visitLdcInsn(2);
-                            mv.visitJumpInsn(IF_ICMPGE, cleanupEnd);
+                        mv.visitLabel(cleanupLoop);
+                        mv.visitVarInsn(ILOAD, scratch);
+                        mv.visitLdcInsn(2);
+                        mv.visitJumpInsn(IF_ICMPGE, cleanupEnd);
 
-                            // Фиктивные операции
-                            mv.visitLdcInsn(System.currentTimeMillis());
-                            mv.visitInsn(POP2);
+                        // Фиктивные операции
+                        mv.visitLdcInsn(random.nextLong());
+                        mv.visitInsn(POP2);
 
-                            mv.visitIincInsn(200, 1);
-                            mv.visitJumpInsn(GOTO, cleanupLoop);
+                        mv.visitIincInsn(scratch, 1);
+                        mv.visitJumpInsn(GOTO, cleanupLoop);
 
-                            mv.visitLabel(cleanupEnd);
-                        }
+                        mv.visitLabel(cleanupEnd);
                     }
-                };
-            }
-        };
-
-        cr.accept(cv, 0);
-        byte[] modified = cw.toByteArray();
-        Files.write(outputClass, modified);
+                }
+            };
+        }
     }
 
     /**
-     * Альтернативная версия с переименованием
+     * Скрытие целей вызовов.
+     *
+     * Вызовы invokestatic и invokevirtual заменяются на invokedynamic, у которого
+     * класс и имя цели - зашифрованные строки (через тот же ConstantDynamic, что и в
+     * StringEncryptionPass), поэтому в пуле констант не остается ссылок на методы.
+     * Bootstrap link$call находит метод через Lookup вызывающего класса один раз, при
+     * первом выполнении инструкции, и возвращает ConstantCallSite: после связывания JIT
+     * встраивает вызов так же, как прямой, и в установившемся режиме он ничего не стоит
+     * (см. CallSiteBenchmark). Платой остается связывание каждого места вызова и 2 байта
+     * кода на вызов, поэтому горячие методы не изменяются.
+     *
+     * Не скрываются вызовы методов интерфейсов, методов массивов и java.lang.invoke
+     * (сигнатурно-полиморфные MethodHandle.invoke и VarHandle, Lookup).
      */
-    public void obfuscateWithRenaming(Path inputClass, Path outputClass) throws IOException {
-        byte[] original = Files.readAllBytes(inputClass);
+    private class CallHidingPass extends ProfiledPass {
+        private static final String LINKER_NAME = "link$call";
+        private static final String LINKER_DESC = "(Ljava/lang/invoke/MethodHandles$Lookup;"
+                + "Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;Ljava/lang/String;I)"
+                + "Ljava/lang/invoke/CallSite;";
+        private static final int KIND_STATIC = 0;
+        private static final int KIND_VIRTUAL = 1;
+
+        private Handle linker;
+        private boolean used;
+        private boolean declared;
+
+        CallHidingPass(ClassVisitor next, PassContext context) {
+            super(next, context);
+        }
+
+        static boolean isLinker(Handle bsm) {
+            return bsm.getName().equals(LINKER_NAME) && bsm.getDesc().equals(LINKER_DESC);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature,
+                          String superName, String[] interfaces) {
+            // Имена цели передаются через ConstantDynamic, а он есть только с Java 11
+            if ((version & 0xFFFF) >= V11) {
+                linker = new Handle(H_INVOKESTATIC, name, LINKER_NAME, LINKER_DESC,
+                        (access & ACC_INTERFACE) != 0);
+            }
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        boolean touches(String name, String descriptor) {
+            return linker != null && heat(name, descriptor) != HotMethodProfile.Heat.HOT;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name,
+                                         String descriptor, String signature,
+                                         String[] exceptions) {
+            if (name.equals(LINKER_NAME) && descriptor.equals(LINKER_DESC)) {
+                declared = true;
+            }
+            MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null || !touches(name, descriptor)) {
+                return mv;
+            }
+            return new MethodVisitor(ASM9, mv) {
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String name,
+                                            String descriptor, boolean isInterface) {
+                    if (!hideable(opcode, owner, name, descriptor, isInterface)) {
+                        super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                        return;
+                    }
+                    used = true;
+                    // Получатель invokevirtual становится первым аргументом call site
+                    String siteDescriptor = opcode == INVOKESTATIC
+                            ? descriptor
+                            : "(L" + owner + ";" + descriptor.substring(1);
+                    super.visitInvokeDynamicInsn("call", siteDescriptor, linker,
+                            owner.replace('/', '.'), name, opcode == INVOKESTATIC ? KIND_STATIC : KIND_VIRTUAL);
+                }
+            };
+        }
+
+        private boolean hideable(int opcode, String owner, String name, String descriptor,
+                                 boolean isInterface) {
+            return (opcode == INVOKESTATIC || opcode == INVOKEVIRTUAL)
+                    && !isInterface
+                    && owner.charAt(0) != '['
+                    && !owner.startsWith("java/lang/invoke/")
+                    && accessible(owner, name, descriptor);
+        }
+
+        /**
+         * Найдет ли linker цель через Lookup этого класса. Protected-метод из другого
+         * пакета findVirtual отдает только с получателем, суженным до вызывающего класса,
+         * поэтому такие вызовы, как и вызовы в классы вне индекса, остаются как есть
+         */
+        private boolean accessible(String owner, String name, String descriptor) {
+            try {
+                String declaring = hierarchy.getDeclaringClass(owner, name, descriptor);
+                if (declaring == null || !classAccessible(owner) || !classAccessible(declaring)) {
+                    return false;
+                }
+                int access = hierarchy.getMethodAccess(declaring, name, descriptor);
+                if ((access & ACC_PUBLIC) != 0) {
+                    return true;
+                }
+                if ((access & ACC_PRIVATE) != 0) {
+                    return declaring.equals(className);
+                }
+                // protected и package-private: только из того же пакета
+                return samePackage(declaring, className);
+            } catch (IllegalStateException e) {
+                return false;
+            }
+        }
 
-        ClassReader cr = new ClassReader(original);
-        ClassWriter cw = new ClassWriter(cr, 0);
+        private boolean classAccessible(String type) {
+            return (hierarchy.getAccess(type) & ACC_PUBLIC) != 0 || samePackage(type, className);
+        }
 
-        ClassVisitor cv = new ClassVisitor(ASM9, cw) {
-            private int methodCounter = 0;
-            private int fieldCounter = 0;
+        private boolean samePackage(String type, String other) {
+            return type.substring(0, Math.max(0, type.lastIndexOf('/')))
+                    .equals(other.substring(0, Math.max(0, other.lastIndexOf('/'))));
+        }
 
-            @Override
-            public MethodVisitor visitMethod(int access, String name,
-                                             String descriptor, String signature,
-                                             String[] exceptions) {
-                // Переименовываем непубличные методы
-                String newName = name;
-                if (!name.equals("<init>") && !name.equals("<clinit>") &&
-                        !name.equals("main") && (access & ACC_PUBLIC) == 0) {
-                    methodCounter++;
-                    newName = "m" + methodCounter;
-                }
+        @Override
+        public void visitEnd() {
+            if (used && !declared) {
+                addLinkerMethod();
+            }
+            super.visitEnd();
+        }
+
+        /**
+         * static CallSite link$call(Lookup lookup, String name, MethodType type,
+         *                           String owner, String method, int kind):
+         * Class c = lookup.findClass(owner);
+         * MethodHandle target = kind == 0
+         *         ? lookup.findStatic(c, method, type)
+         *         : lookup.findVirtual(c, method, type.dropParameterTypes(0, 1));
+         * return new ConstantCallSite(target.asType(type));
+         */
+        private void addLinkerMethod() {
+            MethodVisitor mv = cv.visitMethod(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC,
+                    LINKER_NAME, LINKER_DESC, null, null);
+            if (mv == null) {
+                return;
+            }
+            String lookup = "java/lang/invoke/MethodHandles$Lookup";
+            String findDesc = "(Ljava/lang/Class;Ljava/lang/String;Ljava/lang/invoke/MethodType;)"
+                    + "Ljava/lang/invoke/MethodHandle;";
+            Label virtual = new Label();
+            Label link = new Label();
+
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitMethodInsn(INVOKEVIRTUAL, lookup, "findClass", "(Ljava/lang/String;)Ljava/lang/Class;", false);
+            mv.visitVarInsn(ASTORE, 6);
+
+            mv.visitVarInsn(ILOAD, 5);
+            mv.visitJumpInsn(IFNE, virtual);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 6);
+            mv.visitVarInsn(ALOAD, 4);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitMethodInsn(INVOKEVIRTUAL, lookup, "findStatic", findDesc, false);
+            mv.visitVarInsn(ASTORE, 7);
+            mv.visitJumpInsn(GOTO, link);
+
+            mv.visitLabel(virtual);
+            mv.visitFrame(F_APPEND, 1, new Object[]{"java/lang/Class"}, 0, null);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 6);
+            mv.visitVarInsn(ALOAD, 4);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitInsn(ICONST_0);
+            mv.visitInsn(ICONST_1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/invoke/MethodType", "dropParameterTypes",
+                    "(II)Ljava/lang/invoke/MethodType;", false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, lookup, "findVirtual", findDesc, false);
+            mv.visitVarInsn(ASTORE, 7);
+
+            mv.visitLabel(link);
+            mv.visitFrame(F_APPEND, 1, new Object[]{"java/lang/invoke/MethodHandle"}, 0, null);
+            mv.visitTypeInsn(NEW, "java/lang/invoke/ConstantCallSite");
+            mv.visitInsn(DUP);
+            mv.visitVarInsn(ALOAD, 7);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/invoke/MethodHandle", "asType",
+                    "(Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/MethodHandle;", false);
+            mv.visitMethodInsn(INVOKESPECIAL, "java/lang/invoke/ConstantCallSite", "<init>",
+                    "(Ljava/lang/invoke/MethodHandle;)V", false);
+            mv.visitInsn(ARETURN);
+            mv.visitMaxs(6, 8);
+            mv.visitEnd();
+        }
+    }
 
-                return super.visitMethod(access, newName, descriptor, signature, exceptions);
+    /**
+     * Шифрование строковых констант.
+     *
+     * Каждый LDC строки заменяется на LDC ConstantDynamic, bootstrap-метод которого
+     * расшифровывает строку. JVM вызывает bootstrap один раз, при первом разрешении
+     * константы, и дальше отдает закэшированную строку так же быстро, как обычный LDC,
+     * поэтому расшифровка не попадает на горячие пути. Строка шифруется XOR с
+     * псевдослучайной последовательностью от своего ключа - это сокрытие от поиска
+     * по class-файлу, а не криптография. ConstantDynamic появился в Java 11,
+     * более старые классы не изменяются.
+     */
+    private class StringEncryptionPass extends ClassVisitor {
+        private static final String BOOTSTRAP_NAME = "decrypt$string";
+        private static final String BOOTSTRAP_DESC = "(Ljava/lang/invoke/MethodHandles$Lookup;"
+                + "Ljava/lang/String;Ljava/lang/Class;Ljava/lang/String;I)Ljava/lang/String;";
+        // Modified UTF-8 тратит до 3 байт на символ, а константа ограничена 65535 байтами
+        private static final int MAX_LENGTH = 65535 / 3;
+
+        // false - шифруются только аргументы CallHidingPass, литералы кода не трогаются
+        private final boolean literals;
+        // Методы, исключенные бюджетом JIT: их строки остаются открытыми
+        private final Set<String> excluded;
+        private Handle bootstrap;
+        private boolean used;
+        // Bootstrap уже есть, если класс прошел этот проход раньше
+        private boolean declared;
+        // Одинаковые строки класса делят одну константу, а не раздувают пул
+        private final Map<String, ConstantDynamic> hidden = new HashMap<>();
+
+        StringEncryptionPass(ClassVisitor next, boolean literals, Set<String> excluded) {
+            super(ASM9, next);
+            this.literals = literals;
+            this.excluded = excluded;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature,
+                          String superName, String[] interfaces) {
+            if ((version & 0xFFFF) >= V11) {
+                bootstrap = new Handle(H_INVOKESTATIC, name, BOOTSTRAP_NAME, BOOTSTRAP_DESC,
+                        (access & ACC_INTERFACE) != 0);
+            }
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name,
+                                         String descriptor, String signature,
+                                         String[] exceptions) {
+            if (name.equals(BOOTSTRAP_NAME) && descriptor.equals(BOOTSTRAP_DESC)) {
+                declared = true;
+            }
+            MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null || bootstrap == null || excluded.contains(name + descriptor)) {
+                return mv;
             }
+            return new MethodVisitor(ASM9, mv) {
+                @Override
+                public void visitLdcInsn(Object value) {
+                    super.visitLdcInsn(literals ? hide(value) : value);
+                }
 
-            @Override
-            public FieldVisitor visitField(int access, String name,
-                                           String descriptor,
-                                           String signature, Object value) {
-                // Переименовываем непубличные поля
-                String newName = name;
-                if ((access & ACC_PUBLIC) == 0) {
-                    fieldCounter++;
-                    newName = "f" + fieldCounter;
+                @Override
+                public void visitInvokeDynamicInsn(String name, String descriptor, Handle bsm,
+                                                   Object... bsmArgs) {
+                    if (!literals && !CallHidingPass.isLinker(bsm)) {
+                        super.visitInvokeDynamicInsn(name, descriptor, bsm, bsmArgs);
+                        return;
+                    }
+                    // Строковые аргументы bootstrap (например, рецепт конкатенации строк
+                    // с ее литералами) JVM разрешает так же, как LDC, поэтому их тоже можно скрыть
+                    Object[] args = bsmArgs.clone();
+                    for (int i = 0; i < args.length; i++) {
+                        args[i] = hide(args[i]);
+                    }
+                    super.visitInvokeDynamicInsn(name, descriptor, bsm, args);
                 }
+            };
+        }
+
+        /**
+         * Строка заменяется на ConstantDynamic, остальные константы возвращаются как есть
+         */
+        private Object hide(Object value) {
+            if (!(value instanceof String) || ((String) value).length() > MAX_LENGTH) {
+                return value;
+            }
+            used = true;
+            return hidden.computeIfAbsent((String) value, s -> {
+                int key = random.nextInt();
+                return new ConstantDynamic("s", "Ljava/lang/String;", bootstrap, encrypt(s, key), key);
+            });
+        }
+
+        @Override
+        public void visitEnd() {
+            if (used && !declared) {
+                addBootstrapMethod();
+            }
+            super.visitEnd();
+        }
+
+        /**
+         * static String decrypt$string(Lookup lookup, String name, Class type, String data, int key):
+         * тот же XOR, что и в encrypt
+         */
+        private void addBootstrapMethod() {
+            MethodVisitor mv = cv.visitMethod(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC,
+                    BOOTSTRAP_NAME, BOOTSTRAP_DESC, null, null);
+            if (mv == null) {
+                return;
+            }
+            Label loop = new Label();
+            Label end = new Label();
+
+            mv.visitCode();
+            // char[] chars = data.toCharArray(); int i = 0;
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "toCharArray", "()[C", false);
+            mv.visitVarInsn(ASTORE, 5);
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, 6);
+
+            // while (i < chars.length)
+            mv.visitLabel(loop);
+            mv.visitFrame(F_APPEND, 2, new Object[]{"[C", INTEGER}, 0, null);
+            mv.visitVarInsn(ILOAD, 6);
+            mv.visitVarInsn(ALOAD, 5);
+            mv.visitInsn(ARRAYLENGTH);
+            mv.visitJumpInsn(IF_ICMPGE, end);
+
+            // key = key * 1103515245 + 12345;
+            mv.visitVarInsn(ILOAD, 4);
+            mv.visitLdcInsn(1103515245);
+            mv.visitInsn(IMUL);
+            mv.visitLdcInsn(12345);
+            mv.visitInsn(IADD);
+            mv.visitVarInsn(ISTORE, 4);
+
+            // chars[i] = (char) (chars[i] ^ (key >>> 16)); i++;
+            mv.visitVarInsn(ALOAD, 5);
+            mv.visitVarInsn(ILOAD, 6);
+            mv.visitVarInsn(ALOAD, 5);
+            mv.visitVarInsn(ILOAD, 6);
+            mv.visitInsn(CALOAD);
+            mv.visitVarInsn(ILOAD, 4);
+            mv.visitIntInsn(BIPUSH, 16);
+            mv.visitInsn(IUSHR);
+            mv.visitInsn(IXOR);
+            mv.visitInsn(I2C);
+            mv.visitInsn(CASTORE);
+            mv.visitIincInsn(6, 1);
+            mv.visitJumpInsn(GOTO, loop);
+
+            // return new String(chars);
+            mv.visitLabel(end);
+            mv.visitFrame(F_SAME, 0, null, 0, null);
+            mv.visitTypeInsn(NEW, "java/lang/String");
+            mv.visitInsn(DUP);
+            mv.visitVarInsn(ALOAD, 5);
+            mv.visitMethodInsn(INVOKESPECIAL, "java/lang/String", "<init>", "([C)V", false);
+            mv.visitInsn(ARETURN);
+            mv.visitMaxs(5, 7);
+            mv.visitEnd();
+        }
+    }
+
+    /**
+     * XOR строки с последовательностью линейного конгруэнтного генератора от ключа
+     */
+    static String encrypt(String value, int key) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            key = key * 1103515245 + 12345;
+            chars[i] = (char) (chars[i] ^ (key >>> 16));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Проход переименования непубличных методов и полей
+     */
+    private class RenamingPass extends ClassVisitor {
+        private int methodCounter = 0;
+        private int fieldCounter = 0;
+
+        RenamingPass(ClassVisitor next) {
+            super(ASM9, next);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name,
+                                         String descriptor, String signature,
+                                         String[] exceptions) {
+            // Переименовываем непубличные методы. Синтетические (лямбды, bootstrap-методы
+            // расшифровки строк) вызываются по имени из invokedynamic и ConstantDynamic
+            String newName = name;
+            if (!name.equals("<init>") && !name.equals("<clinit>") &&
+                    !name.equals("main") && (access & (ACC_PUBLIC | ACC_SYNTHETIC)) == 0) {
+                methodCounter++;
+                newName = "m" + methodCounter;
+            }
 
-                return super.visitField(access, newName, descriptor, signature, value);
+            return super.visitMethod(access, newName, descriptor, signature, exceptions);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name,
+                                       String descriptor,
+                                       String signature, Object value) {
+            // Переименовываем непубличные поля, кроме синтетических (seed предикатов)
+            String newName = name;
+            if ((access & (ACC_PUBLIC | ACC_SYNTHETIC)) == 0) {
+                fieldCounter++;
+                newName = "f" + fieldCounter;
             }
-        };
 
-        cr.accept(cv, 0);
-        byte[] modified = cw.toByteArray();
-        Files.write(outputClass, modified);
+            return super.visitField(access, newName, descriptor, signature, value);
+        }
     }
-}
\ No newline at end of file
+}
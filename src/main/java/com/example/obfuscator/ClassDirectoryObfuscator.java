@@ -0,0 +1,291 @@
+package com.example.obfuscator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Инкрементальная обфускация директории скомпилированных классов на месте
+ * (например, target/classes), без отдельного процесса на каждый класс.
+ *
+ * Класс обфусцируется, только если он изменился с прошлого запуска. Для каждого
+ * обфусцированного класса в файле состояния записываются размер, время изменения и
+ * SHA-256 результата. Совпали размер и время - класс пропускается без чтения. Иначе
+ * сравнивается хэш: совпал - файл только тронули, не совпал - класс перекомпилирован
+ * и обфусцируется снова. Уже обфусцированный класс повторно не обрабатывается.
+ *
+ * Обфусцированные классы заменяют исходные, поэтому с другими опциями их уже не
+ * пересобрать: при смене опций нужна чистая сборка.
+ *
+ * Запуск может прерваться на середине (Ctrl+C, падение сборки), а повторная обфускация
+ * уже обфусцированного класса его ломает. Поэтому класс записывается во временный файл,
+ * его отпечаток дописывается в журнал рядом с файлом состояния, и только затем файл
+ * атомарно заменяет исходный. Следующий запуск сначала переносит журнал в состояние.
+ * Класс, в котором уже есть члены, добавленные проходами, тоже не обрабатывается.
+ */
+public class ClassDirectoryObfuscator {
+
+    private static final String OPTIONS_KEY = "#options";
+    private static final String PARTIAL_SUFFIX = ".tmp";
+
+    private final ObfuscationOptions options;
+    private final Set<AsmObfuscator.Pass> passes;
+
+    public static class Result {
+        public final int classesProcessed;
+        public final int classesUnchanged;
+        public final List<String> failedClasses;
+        // Классы, с которых бюджет JIT снял шифрование строк или скрытие вызовов
+        public final List<String> weakenedClasses;
+
+        public Result(int classesProcessed, int classesUnchanged, List<String> failedClasses,
+                      List<String> weakenedClasses) {
+            this.classesProcessed = classesProcessed;
+            this.classesUnchanged = classesUnchanged;
+            this.failedClasses = failedClasses;
+            this.weakenedClasses = weakenedClasses;
+        }
+    }
+
+    /**
+     * Classpath из options - библиотеки, от которых зависят классы: нужны только для иерархии классов
+     */
+    public ClassDirectoryObfuscator(ObfuscationOptions options) {
+        this.options = options;
+        this.passes = options.getPasses();
+    }
+
+    /**
+     * Обфусцирует изменившиеся классы директории; состояние хранится в stateFile
+     */
+    public Result obfuscate(Path classesDir, Path stateFile) throws IOException, InterruptedException {
+        Path journalFile = stateFile.resolveSibling(stateFile.getFileName() + ".journal");
+        Properties state = loadState(stateFile, journalFile);
+        String fingerprint = options();
+        String previousOptions = state.getProperty(OPTIONS_KEY);
+        if (previousOptions != null && !previousOptions.equals(fingerprint)) {
+            throw new IllegalStateException("Опции обфускации изменились (" + previousOptions + " → " + fingerprint
+                    + "), а классы в " + classesDir + " уже обфусцированы: нужна чистая сборка");
+        }
+
+        // Опции и журнал прерванного запуска сохраняются до изменения первого класса
+        state.setProperty(OPTIONS_KEY, fingerprint);
+        saveState(stateFile, state);
+        Files.deleteIfExists(journalFile);
+
+        List<Path> classFiles;
+        try (Stream<Path> walk = Files.walk(classesDir)) {
+            classFiles = walk.filter(ClassDirectoryObfuscator::isObfuscatableClass).sorted().toList();
+        }
+        // Временные файлы прерванного запуска не должны попасть в JAR
+        try (Stream<Path> walk = Files.walk(classesDir)) {
+            for (Path partial : (Iterable<Path>) walk.filter(p -> p.toString().endsWith(".class" + PARTIAL_SUFFIX))::iterator) {
+                Files.deleteIfExists(partial);
+            }
+        }
+
+        // Иерархия для пересчета stack map frames: все классы директории и библиотек, без их загрузки
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        hierarchy.addDirectory(classesDir);
+        hierarchy.addClasspath(options.getClasspath());
+
+        Properties updated = new Properties();
+        updated.setProperty(OPTIONS_KEY, fingerprint);
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger unchanged = new AtomicInteger();
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        List<String> weakened = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService workers = Executors.newFixedThreadPool(options.getThreads());
+        try (Journal journal = new Journal(journalFile)) {
+            for (Path file : classFiles) {
+                String name = classesDir.relativize(file).toString().replace('\\', '/');
+                String previous = state.getProperty(name);
+                workers.execute(() -> {
+                    try {
+                        Fingerprint recorded = previous == null ? null : Fingerprint.parse(previous);
+                        if (recorded != null && recorded.sameFile(file)) {
+                            unchanged.incrementAndGet();
+                            synchronized (updated) {
+                                updated.setProperty(name, previous);
+                            }
+                            return;
+                        }
+                        byte[] current = Files.readAllBytes(file);
+                        if (recorded != null && recorded.sha256.equals(ObfuscationCache.digest(current))
+                                || AsmObfuscator.isObfuscated(current)) {
+                            // Файл только тронули или состояние потеряно: класс уже обфусцирован
+                            unchanged.incrementAndGet();
+                            synchronized (updated) {
+                                updated.setProperty(name, Fingerprint.of(file, current).toString());
+                            }
+                            return;
+                        }
+                        AsmObfuscator asmObf = new AsmObfuscator(options, hierarchy);
+                        byte[] modified = asmObf.obfuscate(current, passes);
+                        if (!asmObf.getBudgetDroppedPasses().isEmpty()) {
+                            weakened.add(name + ": без " + asmObf.getBudgetDroppedPasses());
+                        }
+                        Path partial = file.resolveSibling(file.getFileName() + PARTIAL_SUFFIX);
+                        Files.write(partial, modified);
+                        // Переименование сохраняет время изменения, поэтому отпечаток берется до него
+                        String written = Fingerprint.of(partial, modified).toString();
+                        journal.record(name, written);
+                        move(partial, file);
+                        processed.incrementAndGet();
+                        synchronized (updated) {
+                            updated.setProperty(name, written);
+                        }
+                    } catch (Exception e) {
+                        // Класс остается без изменений и будет обработан при следующем запуске
+                        failed.add(name + ": " + e);
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        // Удаленные классы выпадают из состояния сами: в updated только существующие файлы
+        saveState(stateFile, updated);
+        Files.deleteIfExists(journalFile);
+        return new Result(processed.get(), unchanged.get(), failed, weakened);
+    }
+
+    private String options() {
+        return new TreeSet<>(passes) + ";jit=" + options.getBudget() + ";opaque=" + options.getOpaquePredicates()
+                + ";flatten=" + options.getFlattener() + ";seed=" + options.getSeed();
+    }
+
+    /**
+     * Состояние и поверх него записи журнала прерванного запуска
+     */
+    private static Properties loadState(Path stateFile, Path journalFile) throws IOException {
+        Properties state = new Properties();
+        if (Files.isRegularFile(stateFile)) {
+            try (InputStream in = Files.newInputStream(stateFile)) {
+                state.load(in);
+            }
+        }
+        if (Files.isRegularFile(journalFile)) {
+            for (String line : Files.readAllLines(journalFile, StandardCharsets.UTF_8)) {
+                // Строка "отпечаток имя"; последняя строка могла быть дописана не до конца
+                int space = line.indexOf(' ');
+                if (space > 0 && Fingerprint.isValid(line.substring(0, space))) {
+                    state.setProperty(line.substring(space + 1), line.substring(0, space));
+                }
+            }
+        }
+        return state;
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void saveState(Path stateFile, Properties state) throws IOException {
+        if (stateFile.getParent() != null) {
+            Files.createDirectories(stateFile.getParent());
+        }
+        Path partial = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(partial)) {
+            state.store(out, "Obfuscator: обфусцированные классы (размер;время;sha-256)");
+        }
+        Files.move(partial, stateFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean isObfuscatableClass(Path file) {
+        String name = file.getFileName().toString();
+        // module-info и package-info не содержат кода, а добавленные методы их ломают
+        return name.endsWith(".class") && !name.equals("module-info.class") && !name.equals("package-info.class")
+                && Files.isRegularFile(file);
+    }
+
+    /**
+     * Журнал классов, замененных в текущем запуске: строка дописывается до замены файла
+     */
+    private static final class Journal implements Closeable {
+        private final Writer out;
+
+        Journal(Path file) throws IOException {
+            this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        synchronized void record(String name, String fingerprint) throws IOException {
+            out.write(fingerprint + " " + name + "\n");
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Отпечаток обфусцированного класса в файле состояния
+     */
+    private static final class Fingerprint {
+        final long size;
+        final long modified;
+        final String sha256;
+
+        Fingerprint(long size, long modified, String sha256) {
+            this.size = size;
+            this.modified = modified;
+            this.sha256 = sha256;
+        }
+
+        static Fingerprint of(Path file, byte[] bytes) throws IOException {
+            return new Fingerprint(bytes.length, Files.getLastModifiedTime(file).toMillis(),
+                    ObfuscationCache.digest(bytes));
+        }
+
+        static Fingerprint parse(String value) {
+            String[] parts = value.split(";");
+            return new Fingerprint(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]);
+        }
+
+        static boolean isValid(String value) {
+            return value.matches("\\d+;\\d+;[0-9a-f]{64}");
+        }
+
+        /**
+         * Размер и время изменения файла не изменились с записи: файл можно не читать
+         */
+        boolean sameFile(Path file) throws IOException {
+            return Files.size(file) == size && Files.getLastModifiedTime(file).toMillis() == modified;
+        }
+
+        @Override
+        public String toString() {
+            return size + ";" + modified + ";" + sha256;
+        }
+    }
+}
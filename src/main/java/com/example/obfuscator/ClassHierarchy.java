@@ -0,0 +1,282 @@
+package com.example.obfuscator;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Индекс иерархии классов для вычисления stack map frames и проверки доступа
+ * к целям скрытых вызовов.
+ *
+ * ClassWriter с COMPUTE_FRAMES ищет общий суперкласс двух типов через
+ * Class.forName, то есть загружает классы обфусцируемого кода в JVM обфускатора.
+ * Это медленно и ломается на чужом classpath. Индекс строится только по объявлениям
+ * в class-файлах (имя, суперкласс, интерфейсы, флаги доступа класса и его методов,
+ * без кода): из входного JAR, библиотек и, по требованию, из образа JDK как ресурсов,
+ * без загрузки классов.
+ * Индекс потокобезопасен и может использоваться всеми потоками JarObfuscator.
+ *
+ * Если тип не найден, getCommonSuperClass бросает IllegalStateException, а не
+ * угадывает Object: неверный суперкласс дает frames, которые не пройдут верификацию.
+ * Такой класс остается без изменений, а его библиотеку нужно добавить в classpath.
+ */
+public class ClassHierarchy {
+
+    private static final String OBJECT = "java/lang/Object";
+
+    private static final class Entry {
+        final String superName;
+        final String[] interfaces;
+        final boolean isInterface;
+        final int access;
+        // Флаги доступа объявленных методов по имени + дескриптору
+        final Map<String, Integer> methods;
+
+        Entry(String superName, String[] interfaces, int access, Map<String, Integer> methods) {
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+            this.access = access;
+            this.methods = methods;
+        }
+    }
+
+    // Заголовки классов JDK не меняются, пока работает JVM: общие для всех индексов (и заданий демона)
+    private static final Map<String, Entry> PLATFORM_ENTRIES = new ConcurrentHashMap<>();
+
+    private static final Entry OBJECT_ENTRY = objectEntry();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Добавляет класс по его байт-коду
+     */
+    public void add(byte[] classBytes) {
+        add(new ClassReader(classBytes));
+    }
+
+    public void add(ClassReader reader) {
+        entries.putIfAbsent(reader.getClassName(), entryOf(reader));
+    }
+
+    /**
+     * Добавляет все классы JAR-файла
+     */
+    public void addJar(Path jar) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".class")
+                        || entry.getName().endsWith("module-info.class")) {
+                    continue;
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    add(in.readAllBytes());
+                } catch (IllegalArgumentException e) {
+                    // Неподдерживаемая версия class-файла: класс останется неизвестным
+                }
+            }
+        }
+    }
+
+    /**
+     * Добавляет классы из директории с .class файлами
+     */
+    public void addDirectory(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) walk.filter(p -> p.toString().endsWith(".class"))::iterator) {
+                try {
+                    add(Files.readAllBytes(file));
+                } catch (IllegalArgumentException e) {
+                    // Неподдерживаемая версия class-файла: класс останется неизвестным
+                }
+            }
+        }
+    }
+
+    /**
+     * Добавляет все JAR-файлы и директории classpath (разделитель - File.pathSeparator)
+     */
+    public void addClasspath(String classpath) throws IOException {
+        if (classpath == null || classpath.isEmpty()) {
+            return;
+        }
+        for (String element : classpath.split(File.pathSeparator)) {
+            Path path = Paths.get(element);
+            if (Files.isDirectory(path)) {
+                addDirectory(path);
+            } else if (Files.isRegularFile(path)) {
+                addJar(path);
+            }
+        }
+    }
+
+    /**
+     * Ближайший общий суперкласс двух внутренних имен, как его ожидает ClassWriter
+     */
+    public String getCommonSuperClass(String type1, String type2) {
+        if (isAssignableFrom(type1, type2)) {
+            return type1;
+        }
+        if (isAssignableFrom(type2, type1)) {
+            return type2;
+        }
+        if (entry(type1).isInterface || entry(type2).isInterface) {
+            return OBJECT;
+        }
+        String type = type1;
+        do {
+            type = entry(type).superName;
+        } while (type != null && !isAssignableFrom(type, type2));
+        return type != null ? type : OBJECT;
+    }
+
+    /**
+     * ClassWriter, который ищет общий суперкласс в этом индексе, а не через Class.forName
+     */
+    public ClassWriter newClassWriter(int flags) {
+        return new ClassWriter(flags) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return ClassHierarchy.this.getCommonSuperClass(type1, type2);
+            }
+        };
+    }
+
+    /**
+     * Является ли тип интерфейсом
+     */
+    public boolean isInterface(String type) {
+        return entry(type).isInterface;
+    }
+
+    /**
+     * Прямой суперкласс типа или null для java/lang/Object
+     */
+    public String getSuperName(String type) {
+        return entry(type).superName;
+    }
+
+    /**
+     * Можно ли присвоить значение типа other переменной типа type
+     */
+    public boolean isAssignableFrom(String type, String other) {
+        if (type.equals(other) || type.equals(OBJECT)) {
+            return true;
+        }
+        Entry entry = entry(other);
+        if (entry.superName != null && isAssignableFrom(type, entry.superName)) {
+            return true;
+        }
+        for (String iface : entry.interfaces) {
+            if (isAssignableFrom(type, iface)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Флаги доступа класса (ACC_PUBLIC, ACC_INTERFACE, ...)
+     */
+    public int getAccess(String type) {
+        return entry(type).access;
+    }
+
+    /**
+     * Класс, в котором объявлен метод, найденный от owner вверх по суперклассам,
+     * или null, если в цепочке суперклассов его нет (например, default-метод интерфейса)
+     */
+    public String getDeclaringClass(String owner, String name, String descriptor) {
+        for (String type = owner; type != null; type = entry(type).superName) {
+            if (entry(type).methods.containsKey(name + descriptor)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Флаги доступа метода, объявленного в type, или -1, если такого метода в классе нет
+     */
+    public int getMethodAccess(String type, String name, String descriptor) {
+        return entry(type).methods.getOrDefault(name + descriptor, -1);
+    }
+
+    private Entry entry(String type) {
+        if (type.equals(OBJECT)) {
+            return OBJECT_ENTRY;
+        }
+        Entry entry = entries.get(type);
+        if (entry == null) {
+            entry = loadPlatformEntry(type);
+            if (entry == null) {
+                throw new IllegalStateException("Класс " + type.replace('/', '.')
+                        + " не найден в иерархии: добавьте его библиотеку в --classpath");
+            }
+            Entry existing = entries.putIfAbsent(type, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Читает заголовок класса JDK как ресурс: класс при этом не загружается.
+     * Возвращает null, если такого класса в JDK нет
+     */
+    private static Entry loadPlatformEntry(String type) {
+        Entry cached = PLATFORM_ENTRIES.get(type);
+        if (cached != null) {
+            return cached;
+        }
+        try (InputStream in = ClassLoader.getPlatformClassLoader().getResourceAsStream(type + ".class")) {
+            if (in != null) {
+                Entry entry = entryOf(new ClassReader(in.readAllBytes()));
+                PLATFORM_ENTRIES.putIfAbsent(type, entry);
+                return entry;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Ресурс недоступен: класс считается неизвестным
+        }
+        return null;
+    }
+
+    private static Entry objectEntry() {
+        Entry object = loadPlatformEntry(OBJECT);
+        return object != null ? object : new Entry(null, new String[0], Opcodes.ACC_PUBLIC, Map.of());
+    }
+
+    private static Entry entryOf(ClassReader reader) {
+        // Только объявления методов: код, отладочная информация и frames пропускаются
+        Map<String, Integer> methods = new HashMap<>();
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor,
+                                             String signature, String[] exceptions) {
+                methods.put(name + descriptor, access);
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return new Entry(reader.getSuperName(), reader.getInterfaces(), reader.getAccess(),
+                methods.isEmpty() ? Map.of() : methods);
+    }
+}
@@ -0,0 +1,507 @@
+package com.example.obfuscator;
+
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SimpleVerifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Уплощение потока управления (control-flow flattening).
+ *
+ * Базовые блоки метода перемешиваются и выполняются из цикла-диспетчера: номер
+ * следующего блока хранится в локальной переменной, а переход к нему - плотный
+ * tableswitch по номерам 0..n-1, то есть один переход по таблице за O(1), а не
+ * поиск, как в lookupswitch. Каждый переход между блоками стоит несколько
+ * инструкций, поэтому уплощаются только методы без циклов (иначе диспетчер
+ * окажется на каждой итерации горячего цикла) и не больше maxCodeSize байт кода
+ * и maxBlocks блоков.
+ *
+ * Подходящий метод, кроме того, не имеет обработчиков исключений и пустой стек
+ * операндов на границах блоков, а каждый слот локальных переменных хранит значения
+ * одного вида. Все локальные переменные инициализируются на входе, а в начале блока
+ * ссылкам возвращается тип, который был у них в исходном методе, - иначе после
+ * слияния путей в диспетчере верификатор увидел бы только общий суперкласс.
+ */
+public class ControlFlowFlattener {
+
+    public static final int DEFAULT_MAX_CODE_SIZE = 200;
+    public static final int DEFAULT_MAX_BLOCKS = 32;
+
+    private final int maxCodeSize;
+    private final int maxBlocks;
+
+    public ControlFlowFlattener(int maxCodeSize, int maxBlocks) {
+        if (maxCodeSize < 0 || maxBlocks < 0) {
+            throw new IllegalArgumentException("Ограничения уплощения не могут быть отрицательными: "
+                    + maxCodeSize + ", " + maxBlocks);
+        }
+        this.maxCodeSize = maxCodeSize;
+        this.maxBlocks = maxBlocks;
+    }
+
+    /**
+     * Ограничения по умолчанию: небольшие методы, до 32 блоков
+     */
+    public static ControlFlowFlattener defaults() {
+        return new ControlFlowFlattener(DEFAULT_MAX_CODE_SIZE, DEFAULT_MAX_BLOCKS);
+    }
+
+    /**
+     * Те же ограничения с другим максимальным размером метода в байтах
+     */
+    public ControlFlowFlattener withMaxCodeSize(int maxCodeSize) {
+        return new ControlFlowFlattener(maxCodeSize, maxBlocks);
+    }
+
+    public int getMaxCodeSize() {
+        return maxCodeSize;
+    }
+
+    public int getMaxBlocks() {
+        return maxBlocks;
+    }
+
+    @Override
+    public String toString() {
+        return maxCodeSize + "," + maxBlocks;
+    }
+
+    /**
+     * Уплощает метод на месте. Возвращает false, если метод не подходит и не изменен
+     *
+     * @param codeSize  размер кода исходного метода в байтах
+     * @param stateSlot свободный int-слот для номера следующего блока
+     */
+    public boolean flatten(String owner, MethodNode method, int codeSize, int stateSlot,
+                           ClassHierarchy hierarchy, Random random) {
+        if (codeSize > maxCodeSize || method.instructions.size() == 0 || !method.tryCatchBlocks.isEmpty()) {
+            return false;
+        }
+        InsnList insns = method.instructions;
+        if (hasLoopsOrSubroutines(insns)) {
+            return false;
+        }
+
+        Frame<BasicValue>[] frames;
+        try {
+            frames = new Analyzer<>(new HierarchyVerifier(owner, hierarchy)).analyze(owner, method);
+        } catch (AnalyzerException e) {
+            return false;
+        }
+
+        List<Block> blocks = splitBlocks(insns, frames);
+        List<Block> dead = new ArrayList<>();
+        if (blocks != null) {
+            blocks.removeIf(block -> block.dead && dead.add(block));
+        }
+        if (blocks == null || blocks.size() < 2 || blocks.size() > maxBlocks) {
+            return false;
+        }
+        int[] sorts = localSorts(method, frames);
+        if (sorts == null) {
+            return false;
+        }
+
+        rewrite(method, blocks, dead, frames, sorts, stateSlot, random);
+        return true;
+    }
+
+    /**
+     * Базовый блок: инструкции от лидера до следующего лидера
+     */
+    private static class Block {
+        final int start;
+        final List<AbstractInsnNode> insns = new ArrayList<>();
+        final LabelNode entry = new LabelNode();
+        int id;
+        boolean dead;
+
+        Block(int start) {
+            this.start = start;
+        }
+    }
+
+    /**
+     * Переход назад - это цикл; JSR/RET не поддерживаются
+     */
+    private static boolean hasLoopsOrSubroutines(InsnList insns) {
+        for (AbstractInsnNode insn : insns) {
+            int index = insns.indexOf(insn);
+            if (insn.getOpcode() == JSR || insn.getOpcode() == RET) {
+                return true;
+            }
+            for (LabelNode target : targets(insn)) {
+                if (insns.indexOf(target) <= index) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<LabelNode> targets(AbstractInsnNode insn) {
+        if (insn instanceof JumpInsnNode) {
+            return List.of(((JumpInsnNode) insn).label);
+        }
+        List<LabelNode> targets = new ArrayList<>();
+        if (insn instanceof TableSwitchInsnNode) {
+            targets.add(((TableSwitchInsnNode) insn).dflt);
+            targets.addAll(((TableSwitchInsnNode) insn).labels);
+        } else if (insn instanceof LookupSwitchInsnNode) {
+            targets.add(((LookupSwitchInsnNode) insn).dflt);
+            targets.addAll(((LookupSwitchInsnNode) insn).labels);
+        }
+        return targets;
+    }
+
+    private static boolean isTerminator(AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        return insn instanceof JumpInsnNode || insn instanceof TableSwitchInsnNode
+                || insn instanceof LookupSwitchInsnNode
+                || (opcode >= IRETURN && opcode <= RETURN) || opcode == ATHROW;
+    }
+
+    /**
+     * Делит код на блоки. null, если на границе блока стек не пуст или есть недостижимый
+     * код. Недостижимые блоки из одних меток (например, метка после последнего return)
+     * помечаются dead
+     */
+    private static List<Block> splitBlocks(InsnList insns, Frame<BasicValue>[] frames) {
+        boolean[] leaders = new boolean[insns.size()];
+        leaders[0] = true;
+        for (AbstractInsnNode insn : insns) {
+            int index = insns.indexOf(insn);
+            for (LabelNode target : targets(insn)) {
+                leaders[insns.indexOf(target)] = true;
+            }
+            if (isTerminator(insn) && index + 1 < insns.size()) {
+                leaders[index + 1] = true;
+            }
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        Block current = null;
+        for (AbstractInsnNode insn : insns) {
+            int index = insns.indexOf(insn);
+            if (leaders[index]) {
+                if (frames[index] != null && frames[index].getStackSize() != 0) {
+                    return null;
+                }
+                current = new Block(index);
+                current.dead = frames[index] == null;
+                blocks.add(current);
+            }
+            if (current.dead && insn.getOpcode() >= 0) {
+                return null;
+            }
+            current.insns.add(insn);
+        }
+        return blocks;
+    }
+
+    /**
+     * Вид значения (Type.INT, LONG, ...) в каждом слоте или null, если слот хранит
+     * значения разных видов (javac переиспользует слоты в разных областях видимости)
+     */
+    private static int[] localSorts(MethodNode method, Frame<BasicValue>[] frames) {
+        int[] sorts = new int[method.maxLocals];
+        for (Frame<BasicValue> frame : frames) {
+            if (frame == null) {
+                continue;
+            }
+            for (int i = 0; i < frame.getLocals(); i++) {
+                BasicValue value = frame.getLocal(i);
+                if (value == BasicValue.RETURNADDRESS_VALUE) {
+                    return null;
+                }
+                if (value.getType() == null) {
+                    continue;
+                }
+                int sort = sortOf(value.getType());
+                if (sorts[i] != 0 && sorts[i] != sort) {
+                    return null;
+                }
+                sorts[i] = sort;
+            }
+        }
+        // Вторая половина long/double не может хранить ничего другого
+        for (int i = 0; i < sorts.length - 1; i++) {
+            if ((sorts[i] == Type.LONG || sorts[i] == Type.DOUBLE) && sorts[i + 1] != 0) {
+                return null;
+            }
+        }
+        return sorts;
+    }
+
+    private static int sortOf(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+            case Type.CHAR:
+            case Type.BYTE:
+            case Type.SHORT:
+            case Type.INT:
+                return Type.INT;
+            case Type.ARRAY:
+                return Type.OBJECT;
+            default:
+                return type.getSort();
+        }
+    }
+
+    private static void rewrite(MethodNode method, List<Block> blocks, List<Block> dead,
+                                Frame<BasicValue>[] frames, int[] sorts, int stateSlot, Random random) {
+        InsnList insns = method.instructions;
+        Map<LabelNode, Block> byLabel = new HashMap<>();
+        for (Block block : blocks) {
+            if (block.insns.get(0) instanceof LabelNode) {
+                byLabel.put((LabelNode) block.insns.get(0), block);
+            }
+        }
+
+        // Номера блоков - перестановка 0..n-1: tableswitch остается плотным
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            ids.add(i);
+        }
+        Collections.shuffle(ids, random);
+        LabelNode[] table = new LabelNode[blocks.size()];
+        for (int i = 0; i < blocks.size(); i++) {
+            blocks.get(i).id = ids.get(i);
+            table[ids.get(i)] = blocks.get(i).entry;
+        }
+
+        boolean isStatic = (method.access & ACC_STATIC) != 0;
+        int argumentsSize = (Type.getArgumentsAndReturnSizes(method.desc) >> 2) - (isStatic ? 1 : 0);
+        LabelNode dispatch = new LabelNode();
+        InsnList result = new InsnList();
+
+        // Вход: локальные переменные получают значения по умолчанию, чтобы в диспетчере
+        // они были инициализированы на всех путях
+        for (int i = argumentsSize; i < sorts.length; i++) {
+            if (sorts[i] != 0) {
+                result.add(defaultValue(sorts[i]));
+                result.add(new VarInsnNode(storeOpcode(sorts[i]), i));
+            }
+        }
+        result.add(jumpTo(blocks.get(0), stateSlot, dispatch));
+
+        result.add(dispatch);
+        result.add(new VarInsnNode(ILOAD, stateSlot));
+        result.add(new TableSwitchInsnNode(0, blocks.size() - 1, table[0], table));
+
+        List<Block> order = new ArrayList<>(blocks);
+        Collections.shuffle(order, random);
+        for (Block block : order) {
+            int position = blocks.indexOf(block);
+            Block next = position + 1 < blocks.size() ? blocks.get(position + 1) : null;
+
+            result.add(block.entry);
+            restoreTypes(result, frames[block.start], argumentsSize, isStatic);
+
+            InsnList stubs = new InsnList();
+            AbstractInsnNode last = null;
+            for (AbstractInsnNode insn : block.insns) {
+                if (insn instanceof FrameNode) {
+                    continue;
+                }
+                insns.remove(insn);
+                last = insn;
+                if (insn instanceof JumpInsnNode) {
+                    JumpInsnNode jump = (JumpInsnNode) insn;
+                    Block target = byLabel.get(jump.label);
+                    if (jump.getOpcode() == GOTO) {
+                        result.add(jumpTo(target, stateSlot, dispatch));
+                        continue;
+                    }
+                    jump.label = stub(stubs, target, stateSlot, dispatch);
+                } else if (insn instanceof TableSwitchInsnNode) {
+                    TableSwitchInsnNode sw = (TableSwitchInsnNode) insn;
+                    sw.dflt = stub(stubs, byLabel.get(sw.dflt), stateSlot, dispatch);
+                    sw.labels.replaceAll(label -> stub(stubs, byLabel.get(label), stateSlot, dispatch));
+                } else if (insn instanceof LookupSwitchInsnNode) {
+                    LookupSwitchInsnNode sw = (LookupSwitchInsnNode) insn;
+                    sw.dflt = stub(stubs, byLabel.get(sw.dflt), stateSlot, dispatch);
+                    sw.labels.replaceAll(label -> stub(stubs, byLabel.get(label), stateSlot, dispatch));
+                }
+                result.add(insn);
+            }
+            // Блок, который проваливался в следующий (или заканчивается условным переходом)
+            boolean fallsThrough = last == null || !isTerminator(last)
+                    || (last instanceof JumpInsnNode && last.getOpcode() != GOTO);
+            if (fallsThrough && next != null) {
+                result.add(jumpTo(next, stateSlot, dispatch));
+            }
+            result.add(stubs);
+        }
+        // Метки недостижимых блоков остаются в конце: на них могут ссылаться номера строк
+        for (Block block : dead) {
+            for (AbstractInsnNode insn : block.insns) {
+                insns.remove(insn);
+                result.add(insn);
+            }
+        }
+
+        method.instructions = result;
+        // Диапазоны отладочных переменных после перестановки блоков теряют смысл
+        method.localVariables = null;
+        method.visibleLocalVariableAnnotations = null;
+        method.invisibleLocalVariableAnnotations = null;
+        method.maxLocals = Math.max(method.maxLocals, stateSlot + 1);
+    }
+
+    /**
+     * Ссылкам возвращается тип из исходного метода: после диспетчера верификатор
+     * знает о них только общий суперкласс всех путей
+     */
+    private static void restoreTypes(InsnList result, Frame<BasicValue> frame, int argumentsSize, boolean isStatic) {
+        for (int i = isStatic ? 0 : 1; i < frame.getLocals(); i++) {
+            Type type = frame.getLocal(i).getType();
+            if (type == null || sortOf(type) != Type.OBJECT) {
+                continue;
+            }
+            if (type.getInternalName().equals("null")) {
+                // Известно, что здесь null: так и записываем
+                result.add(new InsnNode(ACONST_NULL));
+                result.add(new VarInsnNode(ASTORE, i));
+            } else if (i >= argumentsSize && !type.getInternalName().equals("java/lang/Object")) {
+                result.add(new VarInsnNode(ALOAD, i));
+                result.add(new TypeInsnNode(CHECKCAST, type.getInternalName()));
+                result.add(new VarInsnNode(ASTORE, i));
+            }
+        }
+    }
+
+    /**
+     * Точка перехода на блок через диспетчер, добавляемая после кода блока
+     */
+    private static LabelNode stub(InsnList stubs, Block target, int stateSlot, LabelNode dispatch) {
+        LabelNode label = new LabelNode();
+        stubs.add(label);
+        stubs.add(jumpTo(target, stateSlot, dispatch));
+        return label;
+    }
+
+    private static InsnList jumpTo(Block target, int stateSlot, LabelNode dispatch) {
+        InsnList list = new InsnList();
+        list.add(pushInt(target.id));
+        list.add(new VarInsnNode(ISTORE, stateSlot));
+        list.add(new JumpInsnNode(GOTO, dispatch));
+        return list;
+    }
+
+    private static AbstractInsnNode pushInt(int value) {
+        if (value <= 5) {
+            return new InsnNode(ICONST_0 + value);
+        }
+        if (value <= Byte.MAX_VALUE) {
+            return new IntInsnNode(BIPUSH, value);
+        }
+        if (value <= Short.MAX_VALUE) {
+            return new IntInsnNode(SIPUSH, value);
+        }
+        return new LdcInsnNode(value);
+    }
+
+    private static AbstractInsnNode defaultValue(int sort) {
+        switch (sort) {
+            case Type.INT:
+                return new InsnNode(ICONST_0);
+            case Type.FLOAT:
+                return new InsnNode(FCONST_0);
+            case Type.LONG:
+                return new InsnNode(LCONST_0);
+            case Type.DOUBLE:
+                return new InsnNode(DCONST_0);
+            default:
+                return new InsnNode(ACONST_NULL);
+        }
+    }
+
+    private static int storeOpcode(int sort) {
+        switch (sort) {
+            case Type.INT:
+                return ISTORE;
+            case Type.FLOAT:
+                return FSTORE;
+            case Type.LONG:
+                return LSTORE;
+            case Type.DOUBLE:
+                return DSTORE;
+            default:
+                return ASTORE;
+        }
+    }
+
+    /**
+     * SimpleVerifier, который узнает иерархию из ClassHierarchy, а не загружает классы
+     */
+    private static class HierarchyVerifier extends SimpleVerifier {
+        private final ClassHierarchy hierarchy;
+
+        HierarchyVerifier(String owner, ClassHierarchy hierarchy) {
+            super(ASM9, Type.getObjectType(owner), null, null, false);
+            this.hierarchy = hierarchy;
+        }
+
+        @Override
+        protected boolean isInterface(Type type) {
+            return type.getSort() == Type.OBJECT && hierarchy.isInterface(type.getInternalName());
+        }
+
+        @Override
+        protected Type getSuperClass(Type type) {
+            if (type.getSort() != Type.OBJECT) {
+                return Type.getObjectType("java/lang/Object");
+            }
+            String superName = hierarchy.getSuperName(type.getInternalName());
+            return superName != null ? Type.getObjectType(superName) : null;
+        }
+
+        @Override
+        protected boolean isAssignableFrom(Type type, Type other) {
+            if (type.equals(other)) {
+                return true;
+            }
+            if (type.getSort() == Type.OBJECT && other.getSort() == Type.OBJECT) {
+                return hierarchy.isAssignableFrom(type.getInternalName(), other.getInternalName());
+            }
+            if (type.getSort() == Type.OBJECT) {
+                // Массив присваивается Object, Cloneable и Serializable
+                String name = type.getInternalName();
+                return name.equals("java/lang/Object") || name.equals("java/lang/Cloneable")
+                        || name.equals("java/io/Serializable");
+            }
+            if (type.getSort() == Type.ARRAY && other.getSort() == Type.ARRAY) {
+                Type element = Type.getType(type.getDescriptor().substring(1));
+                Type otherElement = Type.getType(other.getDescriptor().substring(1));
+                return sortOf(element) == Type.OBJECT && sortOf(otherElement) == Type.OBJECT
+                        && isAssignableFrom(element, otherElement);
+            }
+            return false;
+        }
+    }
+}
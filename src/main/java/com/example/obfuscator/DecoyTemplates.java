@@ -0,0 +1,117 @@
+package com.example.obfuscator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.SimpleName;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.Statement;
+
+/**
+ * Библиотека заранее разобранных шаблонов ложного кода.
+ *
+ * Каждый шаблон разбирается JavaParser один раз при загрузке класса. При вставке
+ * шаблон клонируется, а слоты-заполнители заменяются: $n0, $n1... - на имена,
+ * $i0, $i1... - на целочисленные литералы. Сами шаблоны не изменяются,
+ * поэтому их можно клонировать из нескольких потоков одновременно.
+ */
+public final class DecoyTemplates {
+
+    private static final Statement INT_VARIABLE =
+            StaticJavaParser.parseStatement("int $n0 = $i0;");
+    private static final Statement TIMESTAMP_VARIABLE =
+            StaticJavaParser.parseStatement("long $n0 = System.currentTimeMillis();");
+    private static final Statement DEAD_BRANCH =
+            StaticJavaParser.parseStatement("if (false) { System.out.println(\"Never happens\"); }");
+    private static final Statement SWALLOWED_DIVISION =
+            StaticJavaParser.parseStatement("try { int x = 1 / 1; } catch (Exception $n0) { /* ignore */ }");
+    private static final Statement EMPTY_LOOP =
+            StaticJavaParser.parseStatement("for (int $n0 = 0; $n0 < $i0; $n0++) { /* empty */ }");
+    private static final Statement WRAPPER_LOOP =
+            StaticJavaParser.parseStatement("for (int $n0 = 0; $n0 < 1; $n0++) { int $n1 = $i0; }");
+    private static final MethodDeclaration FAKE_METHOD = StaticJavaParser.parse(
+                    "class Temp {\n" +
+                    "    private int $n0() {\n" +
+                    "        int result = $i0;\n" +
+                    "        for (int i = 0; i < $i1; i++) {\n" +
+                    "            result += i * i;\n" +
+                    "        }\n" +
+                    "        return result;\n" +
+                    "    }\n" +
+                    "}")
+            .findFirst(MethodDeclaration.class)
+            .orElseThrow(IllegalStateException::new);
+
+    private DecoyTemplates() {
+    }
+
+    // int name = value;
+    public static Statement intVariable(String name, int value) {
+        return fill(INT_VARIABLE.clone(), new String[]{name}, new int[]{value});
+    }
+
+    // // comment
+    // int name = value;
+    public static Statement intVariable(String name, int value, String comment) {
+        Statement stmt = intVariable(name, value);
+        // Содержимое однострочного комментария печатается сразу после "//"
+        stmt.setLineComment(" " + comment);
+        return stmt;
+    }
+
+    // long name = System.currentTimeMillis();
+    public static Statement timestampVariable(String name) {
+        return fill(TIMESTAMP_VARIABLE.clone(), new String[]{name}, new int[0]);
+    }
+
+    // if (false) { ... }
+    public static Statement deadBranch() {
+        return DEAD_BRANCH.clone();
+    }
+
+    // try { int x = 1 / 1; } catch (Exception exceptionName) { }
+    public static Statement swallowedDivision(String exceptionName) {
+        return fill(SWALLOWED_DIVISION.clone(), new String[]{exceptionName}, new int[0]);
+    }
+
+    // for (int loopVar = 0; loopVar < bound; loopVar++) { }
+    public static Statement emptyLoop(String loopVar, int bound) {
+        return fill(EMPTY_LOOP.clone(), new String[]{loopVar}, new int[]{bound});
+    }
+
+    // for (int wrapperVar = 0; wrapperVar < 1; wrapperVar++) { int dummyVar = value; }
+    public static ForStmt wrapperLoop(String wrapperVar, String dummyVar, int value) {
+        return fill(WRAPPER_LOOP.clone(), new String[]{wrapperVar, dummyVar}, new int[]{value}).asForStmt();
+    }
+
+    // private int name() { int result = initial; for (...) result += i * i; return result; }
+    public static MethodDeclaration fakeMethod(String name, int initial, int iterations) {
+        return fill(FAKE_METHOD.clone(), new String[]{name}, new int[]{initial, iterations});
+    }
+
+    /**
+     * Заполняет слоты шаблона в уже клонированном узле
+     */
+    private static <T extends Node> T fill(T node, String[] names, int[] values) {
+        if (values.length > 0) {
+            for (NameExpr slot : node.findAll(NameExpr.class)) {
+                String id = slot.getNameAsString();
+                if (id.startsWith("$i")) {
+                    int value = values[Integer.parseInt(id.substring(2))];
+                    slot.replace(new IntegerLiteralExpr(String.valueOf(value)));
+                }
+            }
+        }
+        if (names.length > 0) {
+            for (SimpleName slot : node.findAll(SimpleName.class)) {
+                String id = slot.getIdentifier();
+                if (id.startsWith("$n")) {
+                    slot.setIdentifier(names[Integer.parseInt(id.substring(2))]);
+                }
+            }
+        }
+        return node;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.obfuscator;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Профиль "горячих" методов, полученный из записи JDK Flight Recorder.
+ *
+ * Запись разбирается офлайн через jdk.jfr.consumer: для каждого события
+ * jdk.ExecutionSample учитывается верхний Java-кадр стека. Методы сортируются
+ * по числу сэмплов; те, что вместе дают первые 80% сэмплов, считаются HOT,
+ * следующие до 95% - WARM, остальные (и не попавшие в запись) - COLD.
+ * Обфускаторы не вставляют ложный код в HOT-методы и вставляют только
+ * дешевый код в WARM-методы.
+ */
+public class HotMethodProfile {
+
+    public enum Heat {
+        HOT,
+        WARM,
+        COLD
+    }
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final double DEFAULT_HOT_SHARE = 0.80;
+    private static final double DEFAULT_WARM_SHARE = 0.95;
+
+    private static final HotMethodProfile NONE = new HotMethodProfile(Map.of(), DEFAULT_HOT_SHARE, DEFAULT_WARM_SHARE);
+
+    // Ключ: "pkg/Owner.name(desc)" - для байт-кода
+    private final Map<String, Heat> heatByMethod = new HashMap<>();
+    // Ключ: "pkg.Owner.name" - для исходников, где дескриптор неизвестен (перегрузки суммируются)
+    private final Map<String, Heat> heatByName = new HashMap<>();
+    private final List<String> ranking;
+    private final long totalSamples;
+    // Обфусцированное внутреннее имя класса -> исходное
+    private final Map<String, String> classAliases;
+
+    private HotMethodProfile(Map<String, Long> samples, double hotShare, double warmShare) {
+        this.classAliases = Map.of();
+
+        long total = 0;
+        Map<String, Long> byName = new HashMap<>();
+        for (Map.Entry<String, Long> e : samples.entrySet()) {
+            total += e.getValue();
+            byName.merge(nameKey(e.getKey()), e.getValue(), Long::sum);
+        }
+        this.totalSamples = total;
+
+        this.ranking = rank(samples, heatByMethod, total, hotShare, warmShare);
+        rank(byName, heatByName, total, hotShare, warmShare);
+    }
+
+    private HotMethodProfile(HotMethodProfile base, Map<String, String> classAliases) {
+        this.heatByMethod.putAll(base.heatByMethod);
+        this.heatByName.putAll(base.heatByName);
+        this.ranking = base.ranking;
+        this.totalSamples = base.totalSamples;
+        this.classAliases = classAliases;
+    }
+
+    /**
+     * Пустой профиль: все методы холодные, обфускация без изменений
+     */
+    public static HotMethodProfile none() {
+        return NONE;
+    }
+
+    public static HotMethodProfile fromJfr(Path recording) throws IOException {
+        return fromJfr(recording, DEFAULT_HOT_SHARE, DEFAULT_WARM_SHARE);
+    }
+
+    public static HotMethodProfile fromJfr(Path recording, double hotShare, double warmShare) throws IOException {
+        Map<String, Long> samples = new HashMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                if (!EXECUTION_SAMPLE.equals(event.getEventType().getName())) {
+                    continue;
+                }
+                RecordedStackTrace stack = event.getStackTrace();
+                if (stack == null) {
+                    continue;
+                }
+                for (RecordedFrame frame : stack.getFrames()) {
+                    if (frame.isJavaFrame()) {
+                        samples.merge(methodKey(frame.getMethod()), 1L, Long::sum);
+                        break;
+                    }
+                }
+            }
+        }
+        return new HotMethodProfile(samples, hotShare, warmShare);
+    }
+
+    /**
+     * Профиль, в котором класс с обфусцированным именем ищется под исходным
+     * (например, после переименования Foo -> Foo_obf на этапе AST)
+     */
+    public HotMethodProfile withClassAlias(String obfuscatedInternalName, String originalInternalName) {
+        Map<String, String> aliases = new HashMap<>(classAliases);
+        aliases.put(obfuscatedInternalName, originalInternalName);
+        return new HotMethodProfile(this, Collections.unmodifiableMap(aliases));
+    }
+
+    /**
+     * Нагретость метода байт-кода по внутреннему имени класса и дескриптору
+     */
+    public Heat heat(String internalClassName, String methodName, String descriptor) {
+        if (heatByMethod.isEmpty()) {
+            return Heat.COLD;
+        }
+        String owner = classAliases.getOrDefault(internalClassName, internalClassName);
+        return heatByMethod.getOrDefault(owner + "." + methodName + descriptor, Heat.COLD);
+    }
+
+    /**
+     * Нагретость метода исходника по полному имени класса (pkg.Outer.Inner) без дескриптора
+     */
+    public Heat heat(String qualifiedClassName, String methodName) {
+        if (heatByName.isEmpty()) {
+            return Heat.COLD;
+        }
+        return heatByName.getOrDefault(qualifiedClassName.replace('$', '.') + "." + methodName, Heat.COLD);
+    }
+
+    public boolean isEmpty() {
+        return totalSamples == 0;
+    }
+
+    public long getTotalSamples() {
+        return totalSamples;
+    }
+
+    /**
+     * Самые горячие методы в порядке убывания числа сэмплов
+     */
+    public List<String> hottest(int limit) {
+        return ranking.subList(0, Math.min(limit, ranking.size()));
+    }
+
+    private static List<String> rank(Map<String, Long> samples, Map<String, Heat> heat,
+                                     long total, double hotShare, double warmShare) {
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>(samples.entrySet());
+        sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        List<String> order = new ArrayList<>();
+        long cumulative = 0;
+        for (Map.Entry<String, Long> e : sorted) {
+            // Метод горячий, если до него набрано меньше hotShare всех сэмплов
+            double before = (double) cumulative / total;
+            heat.put(e.getKey(), before < hotShare ? Heat.HOT : before < warmShare ? Heat.WARM : Heat.COLD);
+            cumulative += e.getValue();
+            order.add(e.getKey() + " (" + e.getValue() + ")");
+        }
+        return Collections.unmodifiableList(order);
+    }
+
+    private static String methodKey(RecordedMethod method) {
+        return method.getType().getName().replace('.', '/') + "." + method.getName() + method.getDescriptor();
+    }
+
+    // "pkg/Outer$Inner.name(desc)" -> "pkg.Outer.Inner.name"
+    private static String nameKey(String methodKey) {
+        return methodKey.substring(0, methodKey.indexOf('(')).replace('/', '.').replace('$', '.');
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.obfuscator;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Компиляция обфусцированного исходного кода внутри текущей JVM через javax.tools.
+ * Байт-код не попадает на диск: javac читает строку или уже записанный файл и пишет классы в память.
+ */
+public class InMemoryCompiler {
+
+    private static final List<String> OPTIONS = List.of("-encoding", "UTF-8", "-proc:none");
+
+    public static class Result {
+        public final boolean success;
+        public final String diagnostics;
+        // Бинарное имя класса (pkg.Outer$Inner) -> байт-код
+        public final Map<String, byte[]> classes;
+
+        public Result(boolean success, String diagnostics, Map<String, byte[]> classes) {
+            this.success = success;
+            this.diagnostics = diagnostics;
+            this.classes = classes;
+        }
+
+        /**
+         * Ищет байт-код класса по простому имени (без пакета)
+         */
+        public byte[] findClass(String simpleName) {
+            for (Map.Entry<String, byte[]> e : classes.entrySet()) {
+                String name = e.getKey();
+                if (name.equals(simpleName) || name.endsWith("." + simpleName)) {
+                    return e.getValue();
+                }
+            }
+            return null;
+        }
+    }
+
+    public Result compile(String className, String source) {
+        return compile(Map.of(className, source), List.of());
+    }
+
+    /**
+     * Компиляция уже записанного исходника: javac читает файл сам, строка в памяти не нужна
+     */
+    public Result compile(String className, Path sourceFile) {
+        return compileFiles(Map.of(className, sourceFile), List.of());
+    }
+
+    /**
+     * Компилирует несколько единиц компиляции одним вызовом javac,
+     * чтобы ссылки между ними разрешались. Ключ - путь к файлу без расширения (pkg/Name).
+     */
+    public Result compile(Map<String, String> sources, List<String> extraOptions) {
+        List<JavaFileObject> units = new ArrayList<>();
+        sources.forEach((name, source) -> units.add(new SourceObject(name, source)));
+        return compileUnits(units, extraOptions);
+    }
+
+    /**
+     * То же для исходников на диске. Ключ - путь к файлу без расширения (pkg/Name)
+     */
+    public Result compileFiles(Map<String, Path> sources, List<String> extraOptions) {
+        List<JavaFileObject> units = new ArrayList<>();
+        sources.forEach((name, file) -> units.add(new FileSourceObject(name, file)));
+        return compileUnits(units, extraOptions);
+    }
+
+    private Result compileUnits(List<JavaFileObject> units, List<String> extraOptions) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return new Result(false,
+                    "Компилятор Java недоступен: запустите обфускатор на JDK, а не на JRE",
+                    Map.of());
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+
+        StandardJavaFileManager standardManager =
+                compiler.getStandardFileManager(diagnostics, Locale.getDefault(), null);
+        try (JavaFileManager fileManager = new MemoryFileManager(standardManager, classes)) {
+            List<String> options = new ArrayList<>(OPTIONS);
+            options.addAll(extraOptions);
+
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    null, fileManager, diagnostics, options, null, units);
+
+            boolean success = task.call();
+            return new Result(success, formatDiagnostics(diagnostics), classes);
+        } catch (Exception e) {
+            return new Result(false, "Ошибка компилятора: " + e.getMessage(), classes);
+        }
+    }
+
+    private static String formatDiagnostics(DiagnosticCollector<JavaFileObject> diagnostics) {
+        StringBuilder sb = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            sb.append(d.getKind());
+            if (d.getSource() != null) {
+                sb.append(' ').append(d.getSource().getName());
+            }
+            sb.append(" (строка ").append(d.getLineNumber()).append("): ")
+                    .append(d.getMessage(Locale.getDefault()))
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Исходный файл, содержимое которого берется из строки
+     */
+    private static class SourceObject extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceObject(String name, String source) {
+            super(URI.create("string:///" + name + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * Исходный файл на диске под именем единицы компиляции: javac читает его при разборе
+     */
+    private static class FileSourceObject extends SimpleJavaFileObject {
+        private final Path file;
+
+        FileSourceObject(String name, Path file) {
+            super(URI.create("string:///" + name + Kind.SOURCE.extension), Kind.SOURCE);
+            this.file = file;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+            return Files.readString(file);
+        }
+    }
+
+    /**
+     * Файл класса, байты которого складываются в общую карту результатов
+     */
+    private static class ClassObject extends SimpleJavaFileObject {
+        private final String binaryName;
+        private final Map<String, byte[]> classes;
+
+        ClassObject(String binaryName, Map<String, byte[]> classes) {
+            super(URI.create("mem:///" + binaryName.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.binaryName = binaryName;
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    classes.put(binaryName, toByteArray());
+                }
+            };
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            return new ClassObject(className, classes);
+        }
+    }
+
+    /**
+     * Сохраняет скомпилированные классы в директорию (плоско, по простому имени)
+     */
+    public static List<Path> writeClasses(Result result, Path outputDir) throws IOException {
+        List<Path> written = new ArrayList<>();
+        for (Map.Entry<String, byte[]> e : result.classes.entrySet()) {
+            String name = e.getKey();
+            String simpleName = name.substring(name.lastIndexOf('.') + 1);
+            Path file = outputDir.resolve(simpleName + ".class");
+            Files.write(file, e.getValue());
+            written.add(file);
+        }
+        return written;
+    }
+}
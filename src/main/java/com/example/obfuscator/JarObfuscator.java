@@ -0,0 +1,199 @@
+package com.example.obfuscator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Пакетная обфускация целого JAR-файла за один запуск JVM.
+ *
+ * Классы прогоняются через проходы AsmObfuscator на ограниченном пуле потоков.
+ * Выходной архив создается копией входного и открывается как zip-файловая система:
+ * перезаписываются только обфусцированные классы, а ресурсы при сохранении
+ * копируются в сжатом виде, без распаковки и повторного сжатия. Уже
+ * обфусцированные классы (повторный запуск на выходном JAR) остаются как есть.
+ *
+ * С seed (детерминированный режим) архив после обфускации переписывается в
+ * нормализованном виде: MANIFEST.MF первым, остальные записи по имени, у всех
+ * записей одно и то же время. Ресурсы при этом сжимаются заново.
+ */
+public class JarObfuscator {
+
+    // Время всех записей нормализованного архива: начало эпохи DOS, как в reproducible builds
+    private static final LocalDateTime NORMALIZED_TIME = LocalDateTime.of(1980, 1, 1, 0, 0);
+
+    private final ObfuscationOptions options;
+    private final Set<AsmObfuscator.Pass> passes;
+
+    public static class Result {
+        public final int classesProcessed;
+        public final int classesSkipped;
+        public final int resourcesCopied;
+        public final List<String> failedClasses;
+        // Классы, с которых бюджет JIT снял шифрование строк или скрытие вызовов
+        public final List<String> weakenedClasses;
+
+        public Result(int classesProcessed, int classesSkipped, int resourcesCopied, List<String> failedClasses,
+                      List<String> weakenedClasses) {
+            this.classesProcessed = classesProcessed;
+            this.classesSkipped = classesSkipped;
+            this.resourcesCopied = resourcesCopied;
+            this.failedClasses = failedClasses;
+            this.weakenedClasses = weakenedClasses;
+        }
+    }
+
+    /**
+     * Проходы, потоки, библиотеки (только для иерархии классов) и остальные настройки берутся из options
+     */
+    public JarObfuscator(ObfuscationOptions options) {
+        this.options = options;
+        this.passes = options.getPasses();
+    }
+
+    public Result obfuscate(Path inputJar, Path outputJar) throws IOException, InterruptedException {
+        Files.copy(inputJar, outputJar, StandardCopyOption.REPLACE_EXISTING);
+
+        // Иерархия для пересчета stack map frames: все классы JAR и библиотек, без их загрузки
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        hierarchy.addJar(inputJar);
+        hierarchy.addClasspath(options.getClasspath());
+
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        int resources = 0;
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        List<String> weakened = Collections.synchronizedList(new ArrayList<>());
+
+        // Ограничивается число прочитанных, но еще не обфусцированных классов
+        int threads = options.getThreads();
+        Semaphore inFlight = new Semaphore(threads * 4);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+        // Без useTempFile zip-файловая система держит каждую новую запись в куче до close(),
+        // то есть все обфусцированные классы JAR сразу; с ним записи уходят во временные файлы
+        try (ZipFile input = new ZipFile(inputJar.toFile());
+             FileSystem output = FileSystems.newFileSystem(outputJar, Map.of("useTempFile", true))) {
+
+            try {
+                Enumeration<? extends ZipEntry> entries = input.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!isObfuscatableClass(entry)) {
+                        // Ресурс уже лежит в копии архива и не будет перепакован
+                        if (!entry.isDirectory()) {
+                            resources++;
+                        }
+                        continue;
+                    }
+
+                    byte[] original = input.getInputStream(entry).readAllBytes();
+                    String name = entry.getName();
+
+                    inFlight.acquire();
+                    workers.execute(() -> {
+                        try {
+                            if (AsmObfuscator.isObfuscated(original)) {
+                                // Повторная обфускация дублирует добавленные методы и поля
+                                skipped.incrementAndGet();
+                                return;
+                            }
+                            AsmObfuscator asmObf = new AsmObfuscator(options, hierarchy);
+                            // Все проходы применяются за один разбор класса
+                            byte[] modified = asmObf.obfuscate(original, passes);
+                            if (!asmObf.getBudgetDroppedPasses().isEmpty()) {
+                                weakened.add(name + ": без " + asmObf.getBudgetDroppedPasses());
+                            }
+                            Files.write(output.getPath(name), modified);
+                            processed.incrementAndGet();
+                        } catch (Exception e) {
+                            // Оригинальный класс остается в архиве без изменений
+                            failed.add(name + ": " + e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } finally {
+                workers.shutdown();
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            }
+        }
+
+        if (options.getSeed().isDeterministic()) {
+            normalize(outputJar);
+        }
+        return new Result(processed.get(), skipped.get(), resources, failed, weakened);
+    }
+
+    /**
+     * Переписывает архив так, чтобы его байты зависели только от содержимого записей:
+     * порядок записей и время больше не зависят от входного архива и часов
+     */
+    private static void normalize(Path jar) throws IOException {
+        Path normalized = jar.resolveSibling(jar.getFileName() + ".tmp");
+        try (ZipFile input = new ZipFile(jar.toFile());
+             ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(normalized))) {
+            List<ZipEntry> entries = new ArrayList<>(Collections.list(input.entries()));
+            entries.sort(Comparator.comparingInt(JarObfuscator::manifestOrder).thenComparing(ZipEntry::getName));
+            for (ZipEntry entry : entries) {
+                ZipEntry copy = new ZipEntry(entry.getName());
+                // Локальное время DOS без поправки на часовой пояс и без расширенных меток
+                copy.setTimeLocal(NORMALIZED_TIME);
+                if (entry.getMethod() == ZipEntry.STORED) {
+                    copy.setMethod(ZipEntry.STORED);
+                    copy.setSize(entry.getSize());
+                    copy.setCompressedSize(entry.getSize());
+                    copy.setCrc(entry.getCrc());
+                }
+                output.putNextEntry(copy);
+                try (InputStream in = input.getInputStream(entry)) {
+                    in.transferTo(output);
+                }
+                output.closeEntry();
+            }
+        }
+        Files.move(normalized, jar, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // JarInputStream находит манифест, только если он идет первым (после META-INF/)
+    private static int manifestOrder(ZipEntry entry) {
+        switch (entry.getName()) {
+            case "META-INF/":
+                return 0;
+            case "META-INF/MANIFEST.MF":
+                return 1;
+            default:
+                return 2;
+        }
+    }
+
+    private static boolean isObfuscatableClass(ZipEntry entry) {
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.endsWith(".class")) {
+            return false;
+        }
+        // module-info и package-info не содержат кода, а добавленные методы их ломают
+        return !name.endsWith("module-info.class") && !name.endsWith("package-info.class");
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.obfuscator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Бюджет размера методов относительно порогов JIT HotSpot.
+ *
+ * Ложный код увеличивает байт-код метода. Если при этом метод переходит порог
+ * MaxInlineSize (35 байт), FreqInlineSize (325 байт) или HugeMethodLimit
+ * (8000 байт), он перестает встраиваться или вовсе не компилируется JIT.
+ * Бюджет сравнивает размеры кода до и после обфускации и называет методы,
+ * которые пересекли хотя бы один порог.
+ */
+public class JitBudget {
+
+    public static final int DEFAULT_MAX_INLINE_SIZE = 35;
+    public static final int DEFAULT_FREQ_INLINE_SIZE = 325;
+    public static final int DEFAULT_HUGE_METHOD_LIMIT = 8000;
+
+    private static final JitBudget DISABLED = new JitBudget(new int[0]);
+
+    private final int[] thresholds;
+
+    private JitBudget(int[] thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * Бюджет с порогами HotSpot по умолчанию
+     */
+    public static JitBudget defaults() {
+        return of(DEFAULT_MAX_INLINE_SIZE, DEFAULT_FREQ_INLINE_SIZE, DEFAULT_HUGE_METHOD_LIMIT);
+    }
+
+    /**
+     * Бюджет с произвольными порогами (в байтах кода метода)
+     */
+    public static JitBudget of(int... thresholds) {
+        for (int threshold : thresholds) {
+            if (threshold <= 0) {
+                throw new IllegalArgumentException("Порог JIT должен быть положительным: " + threshold);
+            }
+        }
+        return new JitBudget(thresholds.clone());
+    }
+
+    /**
+     * Бюджет выключен: размеры методов не проверяются
+     */
+    public static JitBudget disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Разбирает пороги вида "35,325,8000"
+     */
+    public static JitBudget parse(String thresholds) {
+        String[] parts = thresholds.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return of(values);
+    }
+
+    public boolean isEnabled() {
+        return thresholds.length > 0;
+    }
+
+    /**
+     * Пересекает ли рост кода с before до after хотя бы один порог
+     */
+    public boolean crosses(int before, int after) {
+        for (int threshold : thresholds) {
+            if (before <= threshold && after > threshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Сколько байт может вырасти метод размера size, не пересекая порогов.
+     * Integer.MAX_VALUE, если бюджет выключен или метод уже больше всех порогов
+     */
+    public int headroom(int size) {
+        int headroom = Integer.MAX_VALUE;
+        for (int threshold : thresholds) {
+            if (size <= threshold) {
+                headroom = Math.min(headroom, threshold - size);
+            }
+        }
+        return headroom;
+    }
+
+    /**
+     * Методы (имя + дескриптор), которые после обфускации пересекли порог.
+     * Методы, которых не было в исходном классе, не проверяются
+     */
+    public List<String> violations(Map<String, Integer> before, Map<String, Integer> after) {
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : before.entrySet()) {
+            Integer size = after.get(e.getKey());
+            if (size != null && crosses(e.getValue(), size)) {
+                violations.add(e.getKey());
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Пороги через запятую или "off"; используется и в ключе кэша
+     */
+    @Override
+    public String toString() {
+        if (!isEnabled()) {
+            return "off";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int threshold : thresholds) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(threshold);
+        }
+        return sb.toString();
+    }
+}
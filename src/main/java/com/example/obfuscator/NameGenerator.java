@@ -2,28 +2,48 @@ package com.example.obfuscator;
 
 import java.util.Random;
 
+/**
+ * Генератор имен для одного задания обфускации.
+ *
+ * Состояние принадлежит экземпляру, поэтому параллельные задания в одной JVM
+ * не портят имена друг друга. Экземпляр не предназначен для разделения между
+ * заданиями или потоками: SimpleObfuscator сбрасывает счетчик в начале каждого
+ * файла, а с seed имена зависят от порядка вызовов. Каждому заданию свой генератор.
+ */
 public class NameGenerator {
     private static final String CHARS = "abcdefghijklmnopqrstuvwxyz";
-    private static final Random rand = new Random();
-    private static int counter = 0;
+    private final Random rand;
+    private int counter;
 
-    public static String nextShortName() {
-        counter++;
-        if (counter <= 26) {
-            return String.valueOf(CHARS.charAt(counter - 1));
+    public NameGenerator() {
+        this(new Random());
+    }
+
+    public NameGenerator(long seed) {
+        this(new Random(seed));
+    }
+
+    private NameGenerator(Random rand) {
+        this.rand = rand;
+    }
+
+    public String nextShortName() {
+        int n = ++counter;
+        if (n <= 26) {
+            return String.valueOf(CHARS.charAt(n - 1));
         }
-        return CHARS.charAt(rand.nextInt(26)) + String.valueOf(counter - 26);
+        return CHARS.charAt(rand.nextInt(26)) + String.valueOf(n - 26);
     }
 
-    public static String nextLongName() {
-        return "var" + (counter++);
+    public String nextLongName() {
+        return "var" + counter++;
     }
 
-    public static void reset() {
+    public void reset() {
         counter = 0;
     }
 
-    public static String randomName() {
+    public String randomName() {
         return "v" + Math.abs(rand.nextInt(10000));
     }
-}
\ No newline at end of file
+}
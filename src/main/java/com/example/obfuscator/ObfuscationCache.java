@@ -0,0 +1,205 @@
+package com.example.obfuscator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Постоянный кэш результатов обфускации, адресуемый по содержимому.
+ *
+ * Ключ - SHA-256 от версии формата, кода обфускатора (весь JAR, из которого он
+ * запущен, или все классы пакета, включая вложенные и анонимные), версии javac,
+ * набора опций и байтов входного файла. Любое изменение входа,
+ * опций или самого обфускатора дает новый ключ, поэтому записи никогда не
+ * инвалидируются явно. Запись - директория dir/hh/hash с готовыми .java и .class;
+ * она сначала собирается во временной директории и затем атомарно переименовывается,
+ * так что параллельные запуски видят либо полную запись, либо никакую.
+ */
+public class ObfuscationCache {
+
+    private static final String FORMAT_VERSION = "1";
+
+    private static volatile String codeFingerprint;
+
+    private final Path directory;
+
+    public ObfuscationCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Директория кэша по умолчанию: ~/.cache/obfuscator
+     */
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".cache", "obfuscator");
+    }
+
+    /**
+     * Вычисляет ключ для входного файла и строки опций
+     */
+    public String key(byte[] input, String options) {
+        MessageDigest digest = sha256();
+        update(digest, FORMAT_VERSION);
+        update(digest, codeFingerprint());
+        update(digest, System.getProperty("java.version"));
+        update(digest, options);
+        digest.update(input);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Копирует файлы записи в outputDir. Возвращает созданные файлы или null при промахе
+     */
+    public List<Path> restore(String key, Path outputDir) throws IOException {
+        Path entry = entryPath(key);
+        if (!Files.isDirectory(entry)) {
+            return null;
+        }
+
+        List<Path> restored = new ArrayList<>();
+        try (Stream<Path> files = Files.list(entry)) {
+            for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                Path target = outputDir.resolve(file.getFileName().toString());
+                Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                restored.add(target);
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Сохраняет файлы результата под ключом. Если запись уже есть, ничего не делает
+     */
+    public void store(String key, List<Path> files) throws IOException {
+        Path entry = entryPath(key);
+        if (Files.isDirectory(entry)) {
+            return;
+        }
+
+        Files.createDirectories(entry.getParent());
+        Path staging = Files.createTempDirectory(entry.getParent(), key + ".tmp");
+        try {
+            for (Path file : files) {
+                Files.copy(file, staging.resolve(file.getFileName().toString()),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            try {
+                Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging, entry);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // Ту же запись только что сохранил параллельный запуск
+        } finally {
+            deleteRecursively(staging);
+        }
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    /**
+     * Хэш кода обфускатора: новая сборка не должна получать старые результаты.
+     * Собранный JAR хэшируется целиком, вместе с JavaParser и ASM, от которых тоже
+     * зависит результат; в директории классов - все .class пакета обфускатора
+     */
+    private static String codeFingerprint() {
+        String fingerprint = codeFingerprint;
+        if (fingerprint == null) {
+            MessageDigest digest = sha256();
+            try {
+                Path codeSource = codeSource();
+                if (codeSource == null) {
+                    // Код не удается прочитать: ключ уникален для процесса, и старые записи не используются
+                    update(digest, "unknown;" + ProcessHandle.current().pid() + ";" + System.nanoTime());
+                } else if (Files.isDirectory(codeSource)) {
+                    digestClasses(digest, codeSource);
+                } else {
+                    try (InputStream in = Files.newInputStream(codeSource)) {
+                        in.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            fingerprint = HexFormat.of().formatHex(digest.digest());
+            codeFingerprint = fingerprint;
+        }
+        return fingerprint;
+    }
+
+    private static Path codeSource() {
+        try {
+            CodeSource source = ObfuscationCache.class.getProtectionDomain().getCodeSource();
+            return source == null || source.getLocation() == null ? null : Paths.get(source.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Все классы пакета обфускатора в директории, в порядке имен: и вложенные ($), и анонимные
+     */
+    private static void digestClasses(MessageDigest digest, Path classesDir) throws IOException {
+        String packagePath = ObfuscationCache.class.getPackageName().replace('.', '/');
+        Path packageDir = classesDir.resolve(packagePath);
+        List<Path> classes;
+        try (Stream<Path> walk = Files.walk(packageDir)) {
+            classes = walk.filter(p -> p.toString().endsWith(".class") && Files.isRegularFile(p)).sorted().toList();
+        }
+        for (Path file : classes) {
+            update(digest, packageDir.relativize(file).toString().replace('\\', '/'));
+            digest.update(Files.readAllBytes(file));
+        }
+    }
+
+    /**
+     * SHA-256 произвольных данных, например файла профиля, для строки опций
+     */
+    public static String digest(byte[] data) {
+        return HexFormat.of().formatHex(sha256().digest(data));
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
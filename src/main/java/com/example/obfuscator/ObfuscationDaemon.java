@@ -0,0 +1,392 @@
+package com.example.obfuscator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Резидентный режим обфускатора.
+ *
+ * Каждый запуск из командной строки платит за старт JVM, загрузку JavaParser, ASM и
+ * javac и холодный JIT. Демон запускается один раз и принимает задания через
+ * Unix domain socket; каждое задание - обычные аргументы командной строки,
+ * которые выполняются на отдельном виртуальном
+ * потоке тем же кодом, что и в консольном режиме. Клиент (--connect) только пересылает
+ * аргументы и печатает вывод задания.
+ *
+ * Протокол: клиент передает аргументы (число, затем строки UTF-8 с длиной), демон
+ * отвечает кадрами [поток: 1 - out, 2 - err][длина][байты] и завершающим кадром
+ * [0][код завершения задания]. Длины проверяются до выделения памяти: на недопустимую
+ * длину демон отвечает ошибкой, не выполняя задание.
+ * Вывод System.out и System.err направляется в кадры того задания, поток которого
+ * печатает: цель хранится в InheritableThreadLocal, поэтому ее наследуют и рабочие
+ * потоки JarObfuscator и SourceTreeObfuscator.
+ *
+ * Задание читает и пишет любые файлы от имени владельца демона, поэтому подключаться
+ * может только он: на POSIX-системах сокет создается с правами 0600 только в директории
+ * владельца с правами 0700 (демон создает ее сам или отказывается запускаться). TCP не
+ * поддерживается: на loopback подключился бы любой локальный пользователь.
+ */
+public class ObfuscationDaemon {
+
+    private static final byte EXIT = 0;
+    private static final byte OUT = 1;
+    private static final byte ERR = 2;
+
+    // Команда клиента для остановки демона
+    static final String STOP = "--stop";
+
+    // Опции, значение которых - путь: клиент делает их абсолютными, у демона своя рабочая директория
+    private static final Set<String> PATH_OPTIONS = Set.of("--cache-dir", "--profile");
+    private static final Set<String> CLASSPATH_OPTIONS = Set.of("--classpath", "-cp");
+
+    // Пределы длин из кадров: мусор или обрезанный кадр не должен занять память демона,
+    // в котором выполняются и чужие задания
+    private static final int MAX_ARGS = 4096;
+    private static final int MAX_FRAME_BYTES = 4 * 1024 * 1024;
+
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_SOCKET = PosixFilePermissions.fromString("rw-------");
+
+    private final UnixDomainSocketAddress address;
+
+    public ObfuscationDaemon(UnixDomainSocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * Адрес демона по умолчанию: ~/.cache/obfuscator/daemon/daemon.sock
+     */
+    public static UnixDomainSocketAddress defaultAddress() {
+        return UnixDomainSocketAddress.of(ObfuscationCache.defaultDirectory().resolve("daemon").resolve("daemon.sock"));
+    }
+
+    /**
+     * Путь к Unix domain socket
+     */
+    public static UnixDomainSocketAddress parseAddress(String value) {
+        return UnixDomainSocketAddress.of(value);
+    }
+
+    /**
+     * Принимает задания до команды --stop
+     */
+    public void serve() throws IOException {
+        // Если open не удался, сокет по этому адресу чужой и удалять его в finally нельзя
+        ServerSocketChannel server = open();
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        JobOutput.install(stdout, stderr);
+
+        try (server; ExecutorService jobs = Executors.newVirtualThreadPerTaskExecutor()) {
+            stdout.println("Демон обфускатора слушает " + address);
+            while (true) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                jobs.submit(() -> handle(client, server));
+            }
+        } finally {
+            Files.deleteIfExists(address.getPath());
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+        stdout.println("Демон обфускатора остановлен");
+    }
+
+    private ServerSocketChannel open() throws IOException {
+        Path path = address.getPath().toAbsolutePath();
+        Path directory = path.getParent();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(directory)) {
+            if (posix) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        if (posix) {
+            checkOwnerOnly(directory);
+        }
+
+        if (Files.exists(path)) {
+            // Файл сокета остается после аварийного завершения прошлого демона,
+            // но сокет работающего демона удалять нельзя
+            if (answers(address)) {
+                throw new IOException("Демон уже запущен: " + path);
+            }
+            Files.deleteIfExists(path);
+        }
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(address);
+        if (posix) {
+            try {
+                Files.setPosixFilePermissions(path, OWNER_ONLY_SOCKET);
+            } catch (IOException e) {
+                server.close();
+                throw e;
+            }
+        }
+        return server;
+    }
+
+    private static boolean answers(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Сокет создается с правами по umask и получает 0600 только после bind. Чтобы никто
+     * не подключился в этот промежуток, директория сокета должна принадлежать владельцу
+     * демона и быть закрыта для остальных (общая директория вроде /tmp не подходит)
+     */
+    private static void checkOwnerOnly(Path directory) throws IOException {
+        UserPrincipal owner = Files.getOwner(directory);
+        UserPrincipal user = FileSystems.getDefault().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+        permissions.removeAll(OWNER_ONLY_DIRECTORY);
+        if (!owner.equals(user) || !permissions.isEmpty()) {
+            throw new IOException("Директория сокета должна принадлежать " + user.getName()
+                    + " и иметь права 0700: " + directory);
+        }
+    }
+
+    private void handle(SocketChannel client, ServerSocketChannel server) {
+        try (client) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+            Frames frames = new Frames(new DataOutputStream(Channels.newOutputStream(client)));
+            String[] args;
+            try {
+                args = new String[readLength(in, MAX_ARGS)];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = readString(in);
+                }
+            } catch (BadFrameException e) {
+                frames.write(ERR, ("Ошибка: " + e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+                frames.exit(1);
+                return;
+            }
+
+            if (args.length == 1 && args[0].equals(STOP)) {
+                frames.write(OUT, "Демон остановлен\n".getBytes(StandardCharsets.UTF_8));
+                frames.exit(0);
+                server.close();
+                return;
+            }
+
+            JobOutput.bind(frames);
+            int exitCode;
+            try {
+                exitCode = ObfuscatorApp.runConsole(args);
+            } finally {
+                System.out.flush();
+                System.err.flush();
+                JobOutput.unbind();
+            }
+            frames.exit(exitCode);
+        } catch (IOException e) {
+            // Клиент отключился: результат задания ему уже не нужен
+        }
+    }
+
+    /**
+     * Отправляет аргументы демону и печатает вывод задания.
+     * Возвращает код завершения задания или -1, если демон не запущен
+     */
+    public static int connect(UnixDomainSocketAddress address, String[] args) throws IOException {
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(address);
+        } catch (IOException e) {
+            return -1;
+        }
+        try (channel) {
+            String[] absolute = args.length == 1 && args[0].equals(STOP) ? args : absolutize(args);
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.writeInt(absolute.length);
+            for (String arg : absolute) {
+                writeString(out, arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            byte stream;
+            while ((stream = in.readByte()) != EXIT) {
+                byte[] bytes = new byte[readLength(in, MAX_FRAME_BYTES)];
+                in.readFully(bytes);
+                (stream == ERR ? System.err : System.out).print(new String(bytes, StandardCharsets.UTF_8));
+            }
+            System.out.flush();
+            return in.readInt();
+        }
+    }
+
+    /**
+     * Вход, выход и пути в опциях относительно рабочей директории клиента
+     */
+    private static String[] absolutize(String[] args) {
+        String[] result = args.clone();
+        for (int i = 0; i < result.length; i++) {
+            if (i < 2 && !result[i].startsWith("-")) {
+                result[i] = absolute(result[i]);
+            } else if (PATH_OPTIONS.contains(result[i]) && i + 1 < result.length) {
+                i++;
+                result[i] = absolute(result[i]);
+            } else if (CLASSPATH_OPTIONS.contains(result[i]) && i + 1 < result.length) {
+                i++;
+                StringBuilder classpath = new StringBuilder();
+                for (String element : result[i].split(File.pathSeparator)) {
+                    if (classpath.length() > 0) {
+                        classpath.append(File.pathSeparator);
+                    }
+                    classpath.append(element.isEmpty() ? element : absolute(element));
+                }
+                result[i] = classpath.toString();
+            }
+        }
+        return result;
+    }
+
+    private static String absolute(String path) {
+        return Paths.get(path).toAbsolutePath().normalize().toString();
+    }
+
+    // Classpath может быть длиннее 64 КБ, поэтому не writeUTF
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in, MAX_FRAME_BYTES)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readLength(DataInputStream in, int max) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > max) {
+            throw new BadFrameException("недопустимая длина в кадре: " + length + " (предел " + max + ")");
+        }
+        return length;
+    }
+
+    /**
+     * Кадр с недопустимой длиной: дальше поток не разобрать
+     */
+    private static final class BadFrameException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BadFrameException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Кадры вывода одного задания; пишут в них несколько потоков сразу
+     */
+    private static final class Frames {
+        private final DataOutputStream out;
+
+        Frames(DataOutputStream out) {
+            this.out = out;
+        }
+
+        // Большой вывод делится на кадры, которые клиент примет
+        synchronized void write(byte stream, byte[] bytes) throws IOException {
+            int offset = 0;
+            do {
+                int length = Math.min(MAX_FRAME_BYTES, bytes.length - offset);
+                out.writeByte(stream);
+                out.writeInt(length);
+                out.write(bytes, offset, length);
+                offset += length;
+            } while (offset < bytes.length);
+            out.flush();
+        }
+
+        synchronized void exit(int exitCode) throws IOException {
+            out.writeByte(EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    /**
+     * System.out и System.err демона: пишут в кадры задания текущего потока,
+     * а вне задания - в исходный вывод демона
+     */
+    private static final class JobOutput extends OutputStream {
+        private static final InheritableThreadLocal<Frames> JOB = new InheritableThreadLocal<>();
+
+        private final byte stream;
+        private final PrintStream fallback;
+
+        private JobOutput(byte stream, PrintStream fallback) {
+            this.stream = stream;
+            this.fallback = fallback;
+        }
+
+        static void install(PrintStream stdout, PrintStream stderr) {
+            System.setOut(new PrintStream(new JobOutput(OUT, stdout), true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(new JobOutput(ERR, stderr), true, StandardCharsets.UTF_8));
+        }
+
+        static void bind(Frames frames) {
+            JOB.set(frames);
+        }
+
+        static void unbind() {
+            JOB.remove();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            Frames frames = JOB.get();
+            if (frames == null) {
+                fallback.write(bytes, offset, length);
+                return;
+            }
+            byte[] copy = new byte[length];
+            System.arraycopy(bytes, offset, copy, 0, length);
+            try {
+                frames.write(stream, copy);
+            } catch (IOException e) {
+                // Клиент отключился: вывод задания теряется, само задание продолжается
+            }
+        }
+    }
+}
@@ -1,14 +1,49 @@
 package com.example.obfuscator;
 
-import java.io.File;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ObfuscationMetrics {
 
+    // Границы корзин гистограммы размеров методов, байт кода:
+    // порог инлайнинга маленьких методов, порог инлайнинга горячих методов и предел JIT
+    private static final int[] METHOD_SIZE_BUCKETS = {35, 325, 8000};
+
     private String className;
     private Metrics originalMetrics;
     private Metrics obfuscatedMetrics;
@@ -34,6 +69,10 @@ public class ObfuscationMetrics {
         private int bytecodeInstructions;
         private int constantPoolSize;
         private int numberOfFields;
+        private int maxStack;
+        private int maxLocals;
+        // Число методов по размеру кода: <=35, <=325, <=8000, >8000 байт
+        private int[] methodSizeHistogram = new int[METHOD_SIZE_BUCKETS.length + 1];
 
         // Геттеры и сеттеры
         public long getFileSizeBytes() { return fileSizeBytes; }
@@ -69,6 +108,15 @@ public class ObfuscationMetrics {
         public int getNumberOfFields() { return numberOfFields; }
         public void setNumberOfFields(int numberOfFields) { this.numberOfFields = numberOfFields; }
 
+        public int getMaxStack() { return maxStack; }
+        public void setMaxStack(int maxStack) { this.maxStack = maxStack; }
+
+        public int getMaxLocals() { return maxLocals; }
+        public void setMaxLocals(int maxLocals) { this.maxLocals = maxLocals; }
+
+        public int[] getMethodSizeHistogram() { return methodSizeHistogram; }
+        public void setMethodSizeHistogram(int[] methodSizeHistogram) { this.methodSizeHistogram = methodSizeHistogram; }
+
         @Override
         public String toString() {
             return String.format(
@@ -82,10 +130,14 @@ public class ObfuscationMetrics {
                             "Оценка читаемости: %.2f\n" +
                             "Инструкций байт-кода: %d\n" +
                             "Размер пула констант: %d\n" +
-                            "Полей: %d",
+                            "Полей: %d\n" +
+                            "Макс. max_stack / max_locals: %d / %d\n" +
+                            "Методов по размеру кода (<=35 / <=325 / <=8000 / >8000 байт): %d / %d / %d / %d",
                     fileSizeBytes, linesOfCode, numberOfMethods, numberOfClasses,
                     numberOfVariables, cyclomaticComplexity, nestingDepth,
-                    readabilityScore, bytecodeInstructions, constantPoolSize, numberOfFields
+                    readabilityScore, bytecodeInstructions, constantPoolSize, numberOfFields,
+                    maxStack, maxLocals, methodSizeHistogram[0], methodSizeHistogram[1],
+                    methodSizeHistogram[2], methodSizeHistogram[3]
             );
         }
     }
@@ -99,156 +151,335 @@ public class ObfuscationMetrics {
 
     // Метод для расчета метрик исходного кода
     public static Metrics calculateSourceCodeMetrics(String sourceCode) {
-        Metrics metrics = new Metrics();
+        return calculateSourceCodeMetrics(StaticJavaParser.parse(sourceCode), sourceCode);
+    }
 
-        // Считаем строки кода (исключая пустые строки и комментарии)
-        String[] lines = sourceCode.split("\n");
-        int codeLines = 0;
-        boolean inBlockComment = false;
+    /**
+     * Метрики исходного кода по уже разобранному дереву.
+     * Структурные метрики считаются одним обходом AST, строки - одним проходом по тексту.
+     */
+    public static Metrics calculateSourceCodeMetrics(CompilationUnit cu, String sourceCode) {
+        int[] lines = countLines(sourceCode);
+        return calculateSourceCodeMetrics(cu, lines[0], lines[1]);
+    }
 
-        for (String line : lines) {
-            String trimmed = line.trim();
+    /**
+     * Метрики по дереву и строкам, посчитанным при потоковой печати
+     */
+    public static Metrics calculateSourceCodeMetrics(CompilationUnit cu, SourceLines lines) {
+        lines.finish();
+        return calculateSourceCodeMetrics(cu, lines.codeLines, lines.longLines);
+    }
 
-            if (inBlockComment) {
-                if (trimmed.contains("*/")) {
-                    inBlockComment = false;
-                }
-                continue;
-            }
+    private static Metrics calculateSourceCodeMetrics(CompilationUnit cu, int codeLines, int longLines) {
+        Metrics metrics = new Metrics();
 
-            if (trimmed.isEmpty()) {
-                continue;
-            }
+        SourceMetricsVisitor visitor = new SourceMetricsVisitor();
+        cu.accept(visitor, null);
 
-            if (trimmed.startsWith("//")) {
-                continue;
-            }
+        metrics.setNumberOfMethods(visitor.methods);
+        metrics.setNumberOfClasses(visitor.classes);
+        metrics.setNumberOfVariables(visitor.variables);
+        metrics.setCyclomaticComplexity(visitor.complexity);
+        metrics.setNestingDepth(visitor.maxDepth);
 
-            if (trimmed.startsWith("/*")) {
-                inBlockComment = true;
-                if (trimmed.contains("*/")) {
-                    inBlockComment = false;
-                }
-                continue;
-            }
+        // Строки кода (без пустых строк и комментариев) и длинные строки
+        metrics.setLinesOfCode(codeLines);
 
-            codeLines++;
-        }
+        metrics.setReadabilityScore(estimateReadability(longLines, visitor.maxDepth, visitor.methods));
 
-        metrics.setLinesOfCode(codeLines);
+        return metrics;
+    }
+
+    // Метод для расчета метрик байт-кода
+    public static Metrics calculateBytecodeMetrics(Path classFile) throws IOException {
+        return calculateBytecodeMetrics(Files.readAllBytes(classFile));
+    }
 
-        // Простые эвристики для подсчета методов, классов и переменных
-        metrics.setNumberOfMethods(countOccurrences(sourceCode, "public.*\\(|private.*\\(|protected.*\\("));
-        metrics.setNumberOfClasses(countOccurrences(sourceCode, "class\\s+\\w+|interface\\s+\\w+"));
-        metrics.setNumberOfVariables(countOccurrences(sourceCode, "int\\s+\\w+|String\\s+\\w+|double\\s+\\w+"));
+    /**
+     * Метрики байт-кода прямо из байтов класса, без внешних процессов.
+     * Инструкции считает ASM; поля, max_stack, max_locals и размеры кода
+     * читаются из заголовков методов и атрибутов Code.
+     */
+    public static Metrics calculateBytecodeMetrics(byte[] classBytes) {
+        Metrics metrics = new Metrics();
+        metrics.setFileSizeBytes(classBytes.length);
+
+        ClassReader reader = new ClassReader(classBytes);
 
-        // Оценка цикломатической сложности
-        metrics.setCyclomaticComplexity(estimateCyclomaticComplexity(sourceCode));
+        // Число слотов пула констант (constant_pool_count - 1)
+        metrics.setConstantPoolSize(reader.getItemCount() - 1);
 
-        // Оценка глубины вложенности
-        metrics.setNestingDepth(estimateNestingDepth(sourceCode));
+        // Точное число инструкций: каждый visit*Insn соответствует одной инструкции
+        int[] instructions = new int[1];
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor,
+                                             String signature, String[] exceptions) {
+                return new InstructionCounter(instructions);
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        metrics.setBytecodeInstructions(instructions[0]);
 
-        // Оценка читаемости (простая эвристика)
-        metrics.setReadabilityScore(estimateReadability(sourceCode));
+        readMembers(reader, metrics);
 
         return metrics;
     }
 
-    // Метод для расчета метрик байт-кода
-    public static Metrics calculateBytecodeMetrics(Path classFile) throws IOException {
-        Metrics metrics = new Metrics();
+    /**
+     * Проходит таблицы полей и методов class-файла и читает заголовки атрибутов Code
+     */
+    private static void readMembers(ClassReader reader, Metrics metrics) {
+        int[] histogram = new int[METHOD_SIZE_BUCKETS.length + 1];
+        int[] maxStack = new int[1];
+        int[] maxLocals = new int[1];
+
+        int fieldCount = forEachMethodCode(reader, (name, descriptor, stack, locals, codeLength) -> {
+            maxStack[0] = Math.max(maxStack[0], stack);
+            maxLocals[0] = Math.max(maxLocals[0], locals);
+            histogram[sizeBucket(codeLength)]++;
+        });
+
+        metrics.setNumberOfFields(fieldCount);
+        metrics.setMaxStack(maxStack[0]);
+        metrics.setMaxLocals(maxLocals[0]);
+        metrics.setMethodSizeHistogram(histogram);
+    }
 
-        // Размер файла
-        if (Files.exists(classFile)) {
-            metrics.setFileSizeBytes(Files.size(classFile));
+    /**
+     * Размер кода (code_length) каждого метода класса, ключ - имя + дескриптор
+     */
+    public static Map<String, Integer> methodCodeSizes(byte[] classBytes) {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        forEachMethodCode(new ClassReader(classBytes),
+                (name, descriptor, stack, locals, codeLength) -> sizes.put(name + descriptor, codeLength));
+        return sizes;
+    }
+
+    /**
+     * max_locals каждого метода с кодом, ключ - имя + дескриптор
+     */
+    public static Map<String, Integer> methodMaxLocals(byte[] classBytes) {
+        Map<String, Integer> locals = new LinkedHashMap<>();
+        forEachMethodCode(new ClassReader(classBytes),
+                (name, descriptor, stack, maxLocals, codeLength) -> locals.put(name + descriptor, maxLocals));
+        return locals;
+    }
+
+    /**
+     * Заголовок атрибута Code одного метода
+     */
+    private interface MethodCodeVisitor {
+        void visit(String name, String descriptor, int maxStack, int maxLocals, int codeLength);
+    }
+
+    /**
+     * Обходит атрибуты Code всех методов без разбора инструкций. Возвращает число полей
+     */
+    private static int forEachMethodCode(ClassReader reader, MethodCodeVisitor visitor) {
+        char[] buffer = new char[reader.getMaxStringLength()];
+
+        // access_flags, this_class, super_class, interfaces
+        int offset = reader.header + 6;
+        offset += 2 + 2 * reader.readUnsignedShort(offset);
+
+        int fieldCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < fieldCount; i++) {
+            offset = skipAttributes(reader, offset + 6);
         }
 
-        // Попытка получить информацию о байт-коде через javap
-        try {
-            ProcessBuilder pb = new ProcessBuilder("javap", "-v", classFile.toString());
-            Process process = pb.start();
-            String output = new String(process.getInputStream().readAllBytes());
+        int methodCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < methodCount; i++) {
+            String name = reader.readUTF8(offset + 2, buffer);
+            String descriptor = reader.readUTF8(offset + 4, buffer);
+            int attributeCount = reader.readUnsignedShort(offset + 6);
+            offset += 8;
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = reader.readUTF8(offset, buffer);
+                int attributeLength = reader.readInt(offset + 2);
+                if ("Code".equals(attributeName)) {
+                    visitor.visit(name, descriptor, reader.readUnsignedShort(offset + 6),
+                            reader.readUnsignedShort(offset + 8), reader.readInt(offset + 10));
+                }
+                offset += 6 + attributeLength;
+            }
+        }
+        return fieldCount;
+    }
 
-            // Считаем инструкции (грубая оценка)
-            int instructions = countOccurrences(output, "\\d+:\\s+\\w+");
-            metrics.setBytecodeInstructions(instructions);
+    private static int skipAttributes(ClassReader reader, int offset) {
+        int attributeCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < attributeCount; i++) {
+            offset += 6 + reader.readInt(offset + 2);
+        }
+        return offset;
+    }
 
-            // Считаем размер пула констант
-            int constantPool = countOccurrences(output, "#\\d+ = ");
-            metrics.setConstantPoolSize(constantPool);
+    private static int sizeBucket(int codeLength) {
+        for (int i = 0; i < METHOD_SIZE_BUCKETS.length; i++) {
+            if (codeLength <= METHOD_SIZE_BUCKETS[i]) {
+                return i;
+            }
+        }
+        return METHOD_SIZE_BUCKETS.length;
+    }
 
-            // Считаем поля
-            int fields = countOccurrences(output, "private|public|protected\\s+\\w+\\s+\\w+;");
-            metrics.setNumberOfFields(fields);
+    /**
+     * Считает инструкции метода
+     */
+    private static class InstructionCounter extends MethodVisitor {
+        private final int[] count;
 
-        } catch (Exception e) {
-            // Если javap не доступен, используем приблизительные значения
-            System.err.println("Не удалось получить метрики байт-кода: " + e.getMessage());
+        InstructionCounter(int[] count) {
+            super(Opcodes.ASM9);
+            this.count = count;
         }
 
-        return metrics;
+        @Override public void visitInsn(int opcode) { count[0]++; }
+        @Override public void visitIntInsn(int opcode, int operand) { count[0]++; }
+        @Override public void visitVarInsn(int opcode, int varIndex) { count[0]++; }
+        @Override public void visitTypeInsn(int opcode, String type) { count[0]++; }
+        @Override public void visitFieldInsn(int opcode, String owner, String name, String descriptor) { count[0]++; }
+        @Override public void visitMethodInsn(int opcode, String owner, String name, String descriptor,
+                                              boolean isInterface) { count[0]++; }
+        @Override public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                                     Object... bootstrapMethodArguments) { count[0]++; }
+        @Override public void visitJumpInsn(int opcode, Label label) { count[0]++; }
+        @Override public void visitLdcInsn(Object value) { count[0]++; }
+        @Override public void visitIincInsn(int varIndex, int increment) { count[0]++; }
+        @Override public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) { count[0]++; }
+        @Override public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) { count[0]++; }
+        @Override public void visitMultiANewArrayInsn(String descriptor, int numDimensions) { count[0]++; }
     }
 
     // Вспомогательные методы
-    private static int countOccurrences(String text, String pattern) {
-        // Простая реализация подсчета вхождений
-        return text.split(pattern).length - 1;
+    /**
+     * Один проход по тексту: {строки кода, строки длиннее 120 символов}.
+     * Строки внутри блочных комментариев и начинающиеся с комментария не считаются кодом.
+     */
+    private static int[] countLines(String sourceCode) {
+        SourceLines lines = new SourceLines(Writer.nullWriter());
+        lines.consume(sourceCode, 0, sourceCode.length());
+        lines.finish();
+        return new int[]{lines.codeLines, lines.longLines};
     }
 
-    private static int estimateCyclomaticComplexity(String sourceCode) {
-        // Упрощенная оценка цикломатической сложности
-        int complexity = 1; // Базовая сложность
+    /**
+     * Writer, который считает строки кода по мере записи и передает текст дальше:
+     * метрики напечатанного исходника без строки на весь файл. В памяти только текущая строка.
+     */
+    public static class SourceLines extends Writer {
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder();
+        private int codeLines;
+        private int longLines;
+        private boolean inBlockComment;
+        private boolean finished;
+
+        public SourceLines(Writer out) {
+            this.out = out;
+        }
 
-        complexity += countOccurrences(sourceCode, "if\\s*\\(|else\\s+if");
-        complexity += countOccurrences(sourceCode, "while\\s*\\(|for\\s*\\(");
-        complexity += countOccurrences(sourceCode, "case\\s+\\w+:|default:");
-        complexity += countOccurrences(sourceCode, "catch\\s*\\(");
-        complexity += countOccurrences(sourceCode, "\\&\\&|\\|\\|");
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            consume(CharBuffer.wrap(buffer), offset, length);
+        }
 
-        return complexity;
-    }
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            out.write(text, offset, length);
+            consume(text, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            out.close();
+        }
+
+        private void consume(CharSequence text, int offset, int length) {
+            int end = offset + length;
+            int lineStart = offset;
+            for (int i = offset; i < end; i++) {
+                if (text.charAt(i) == '\n') {
+                    line.append(text, lineStart, i);
+                    endLine();
+                    lineStart = i + 1;
+                }
+            }
+            line.append(text, lineStart, end);
+        }
+
+        /**
+         * Учитывает последнюю строку (после последнего перевода строки)
+         */
+        void finish() {
+            if (!finished) {
+                finished = true;
+                endLine();
+            }
+        }
 
-    private static int estimateNestingDepth(String sourceCode) {
-        // Оценка максимальной глубины вложенности
-        int maxDepth = 0;
-        int currentDepth = 0;
+        private void endLine() {
+            int lineEnd = line.length();
+            if (lineEnd > 120) {
+                longLines++;
+            }
+
+            int first = 0;
+            while (first < lineEnd && Character.isWhitespace(line.charAt(first))) {
+                first++;
+            }
 
-        for (char c : sourceCode.toCharArray()) {
-            if (c == '{') {
-                currentDepth++;
-                if (currentDepth > maxDepth) {
-                    maxDepth = currentDepth;
+            if (inBlockComment) {
+                if (line.indexOf("*/", first) >= 0) {
+                    inBlockComment = false;
+                }
+            } else if (first < lineEnd) {
+                if (startsWith(line, "/*", first)) {
+                    inBlockComment = line.indexOf("*/", first + 2) < 0;
+                } else if (!startsWith(line, "//", first)) {
+                    codeLines++;
                 }
-            } else if (c == '}') {
-                currentDepth--;
             }
+            line.setLength(0);
         }
 
-        return maxDepth;
+        private static boolean startsWith(StringBuilder text, String prefix, int from) {
+            if (text.length() - from < prefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (text.charAt(from + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 
-    private static double estimateReadability(String sourceCode) {
+    private static double estimateReadability(int longLines, int nestingDepth, int methodCount) {
         // Простая оценка читаемости (0-100)
         double score = 100.0;
 
         // Штраф за длинные строки
-        String[] lines = sourceCode.split("\n");
-        int longLines = 0;
-        for (String line : lines) {
-            if (line.length() > 120) {
-                longLines++;
-            }
-        }
         score -= (longLines * 2.0);
 
         // Штраф за высокую вложенность
-        int nestingDepth = estimateNestingDepth(sourceCode);
         if (nestingDepth > 5) {
             score -= (nestingDepth - 5) * 5.0;
         }
 
         // Штраф за слишком много методов в одном классе
-        int methodCount = countOccurrences(sourceCode, "public.*\\(|private.*\\(|protected.*\\(");
         if (methodCount > 15) {
             score -= (methodCount - 15) * 1.0;
         }
@@ -256,6 +487,138 @@ public class ObfuscationMetrics {
         return Math.max(0, score);
     }
 
+    /**
+     * Обход AST, собирающий структурные метрики за один проход.
+     * Глубина вложенности считается по телам типов, блокам и switch - как уровни фигурных скобок.
+     */
+    private static class SourceMetricsVisitor extends VoidVisitorAdapter<Void> {
+        int methods;
+        int classes;
+        int variables;
+        int complexity = 1; // Базовая сложность
+        int maxDepth;
+        private int depth;
+
+        private void enter() {
+            depth++;
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+        }
+
+        @Override
+        public void visit(ClassOrInterfaceDeclaration n, Void arg) {
+            classes++;
+            enter();
+            super.visit(n, arg);
+            depth--;
+        }
+
+        @Override
+        public void visit(EnumDeclaration n, Void arg) {
+            classes++;
+            enter();
+            super.visit(n, arg);
+            depth--;
+        }
+
+        @Override
+        public void visit(RecordDeclaration n, Void arg) {
+            classes++;
+            enter();
+            super.visit(n, arg);
+            depth--;
+        }
+
+        @Override
+        public void visit(BlockStmt n, Void arg) {
+            enter();
+            super.visit(n, arg);
+            depth--;
+        }
+
+        @Override
+        public void visit(SwitchStmt n, Void arg) {
+            enter();
+            super.visit(n, arg);
+            depth--;
+        }
+
+        @Override
+        public void visit(MethodDeclaration n, Void arg) {
+            methods++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(ConstructorDeclaration n, Void arg) {
+            methods++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(VariableDeclarator n, Void arg) {
+            variables++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(IfStmt n, Void arg) {
+            complexity++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(ForStmt n, Void arg) {
+            complexity++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(ForEachStmt n, Void arg) {
+            complexity++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(WhileStmt n, Void arg) {
+            complexity++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(DoStmt n, Void arg) {
+            complexity++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(SwitchEntry n, Void arg) {
+            complexity++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(CatchClause n, Void arg) {
+            complexity++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(ConditionalExpr n, Void arg) {
+            complexity++;
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(BinaryExpr n, Void arg) {
+            if (n.getOperator() == BinaryExpr.Operator.AND || n.getOperator() == BinaryExpr.Operator.OR) {
+                complexity++;
+            }
+            super.visit(n, arg);
+        }
+    }
+
     // Геттеры и сеттеры
     public Metrics getOriginalMetrics() { return originalMetrics; }
     public void setOriginalMetrics(Metrics originalMetrics) { this.originalMetrics = originalMetrics; }
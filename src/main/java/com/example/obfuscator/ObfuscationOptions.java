@@ -0,0 +1,119 @@
+package com.example.obfuscator;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Настройки ASM-обфускации, общие для всех точек входа: AsmObfuscator,
+ * JarObfuscator, SourceTreeObfuscator и ClassDirectoryObfuscator.
+ *
+ * Объект неизменяемый: defaults() дает базовый проход без профиля, бюджета JIT и seed,
+ * а методы with* возвращают копию с одной измененной настройкой. Новая настройка
+ * добавляется сюда, а не очередным конструктором в каждый класс.
+ */
+public final class ObfuscationOptions {
+
+    private final Set<AsmObfuscator.Pass> passes;
+    private final int threads;
+    // Библиотеки: для иерархии классов, а в дереве исходников и для компиляции
+    private final String classpath;
+    private final HotMethodProfile profile;
+    private final JitBudget budget;
+    private final OpaquePredicates opaquePredicates;
+    private final ControlFlowFlattener flattener;
+    private final ObfuscationSeed seed;
+
+    private ObfuscationOptions(Set<AsmObfuscator.Pass> passes, int threads, String classpath,
+                               HotMethodProfile profile, JitBudget budget, OpaquePredicates opaquePredicates,
+                               ControlFlowFlattener flattener, ObfuscationSeed seed) {
+        this.passes = passes;
+        this.threads = threads;
+        this.classpath = classpath;
+        this.profile = profile;
+        this.budget = budget;
+        this.opaquePredicates = opaquePredicates;
+        this.flattener = flattener;
+        this.seed = seed;
+    }
+
+    /**
+     * Базовый проход, по потоку на ядро, без профиля, бюджета JIT и seed
+     */
+    public static ObfuscationOptions defaults() {
+        return new ObfuscationOptions(EnumSet.of(AsmObfuscator.Pass.BASIC),
+                Runtime.getRuntime().availableProcessors(), null, HotMethodProfile.none(),
+                JitBudget.disabled(), OpaquePredicates.defaults(), ControlFlowFlattener.defaults(),
+                ObfuscationSeed.none());
+    }
+
+    public ObfuscationOptions withPasses(Set<AsmObfuscator.Pass> passes) {
+        return new ObfuscationOptions(copyOf(passes), threads, classpath, profile, budget,
+                opaquePredicates, flattener, seed);
+    }
+
+    public ObfuscationOptions withThreads(int threads) {
+        return new ObfuscationOptions(passes, Math.max(1, threads), classpath, profile, budget,
+                opaquePredicates, flattener, seed);
+    }
+
+    public ObfuscationOptions withClasspath(String classpath) {
+        return new ObfuscationOptions(passes, threads, classpath, profile, budget, opaquePredicates, flattener, seed);
+    }
+
+    public ObfuscationOptions withProfile(HotMethodProfile profile) {
+        return new ObfuscationOptions(passes, threads, classpath, profile, budget, opaquePredicates, flattener, seed);
+    }
+
+    public ObfuscationOptions withBudget(JitBudget budget) {
+        return new ObfuscationOptions(passes, threads, classpath, profile, budget, opaquePredicates, flattener, seed);
+    }
+
+    public ObfuscationOptions withOpaquePredicates(OpaquePredicates opaquePredicates) {
+        return new ObfuscationOptions(passes, threads, classpath, profile, budget, opaquePredicates, flattener, seed);
+    }
+
+    public ObfuscationOptions withFlattener(ControlFlowFlattener flattener) {
+        return new ObfuscationOptions(passes, threads, classpath, profile, budget, opaquePredicates, flattener, seed);
+    }
+
+    public ObfuscationOptions withSeed(ObfuscationSeed seed) {
+        return new ObfuscationOptions(passes, threads, classpath, profile, budget, opaquePredicates, flattener, seed);
+    }
+
+    public Set<AsmObfuscator.Pass> getPasses() {
+        return copyOf(passes);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public String getClasspath() {
+        return classpath;
+    }
+
+    public HotMethodProfile getProfile() {
+        return profile;
+    }
+
+    public JitBudget getBudget() {
+        return budget;
+    }
+
+    public OpaquePredicates getOpaquePredicates() {
+        return opaquePredicates;
+    }
+
+    public ControlFlowFlattener getFlattener() {
+        return flattener;
+    }
+
+    public ObfuscationSeed getSeed() {
+        return seed;
+    }
+
+    // EnumSet.copyOf не принимает пустую коллекцию, если это не EnumSet
+    private static EnumSet<AsmObfuscator.Pass> copyOf(Set<AsmObfuscator.Pass> passes) {
+        return passes.isEmpty() ? EnumSet.noneOf(AsmObfuscator.Pass.class) : EnumSet.copyOf(passes);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.obfuscator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Источник случайности одного задания обфускации.
+ *
+ * Без seed (none) каждый генератор независим и непредсказуем, как и раньше.
+ * С seed генератор класса, метода или прохода выводится из главного seed и ключей
+ * (имя класса, метод, проход): каждый ключ смешивается с текущим значением через
+ * SplittableRandom. Генератор зависит только от ключей, а не от порядка, в котором
+ * потоки обрабатывают классы, поэтому последовательный и параллельный запуски на
+ * одном входе дают одинаковые байты.
+ */
+public class ObfuscationSeed {
+
+    private static final ObfuscationSeed NONE = new ObfuscationSeed(0, false);
+
+    private final long seed;
+    private final boolean deterministic;
+
+    private ObfuscationSeed(long seed, boolean deterministic) {
+        this.seed = seed;
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * Без seed: результат каждого запуска разный
+     */
+    public static ObfuscationSeed none() {
+        return NONE;
+    }
+
+    public static ObfuscationSeed of(long seed) {
+        return new ObfuscationSeed(seed, true);
+    }
+
+    /**
+     * Seed из командной строки: число или произвольная строка (берется ее хэш)
+     */
+    public static ObfuscationSeed parse(String value) {
+        try {
+            return of(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return of(hash(value));
+        }
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * Генератор для цепочки ключей, например (класс), (класс, метод + дескриптор, проход)
+     */
+    public Random derive(String... keys) {
+        if (!deterministic) {
+            return new Random();
+        }
+        long value = seed;
+        for (String key : keys) {
+            value = new SplittableRandom(value ^ hash(key)).nextLong();
+        }
+        return new Random(value);
+    }
+
+    @Override
+    public String toString() {
+        return deterministic ? Long.toString(seed) : "none";
+    }
+
+    /**
+     * FNV-1a по UTF-8: в отличие от String.hashCode дает 64 бита
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -1,21 +1,121 @@
 package com.example.obfuscator;
 
+import org.objectweb.asm.ClassReader;
+
 import javax.swing.*;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
 
 public class ObfuscatorApp {
     public static void main(String[] args) {
         // Если нет аргументов или есть аргумент --gui, запускаем GUI
         if (args.length == 0 || (args.length == 1 && args[0].equals("--gui"))) {
             launchGUI();
+            return;
+        }
+
+        int exitCode;
+        if (args[0].equals("--train-cds")) {
+            exitCode = runTraining();
+        } else if (args[0].equals("--daemon")) {
+            exitCode = runDaemon(args);
+        } else if (args[0].equals("--connect") && args.length >= 2) {
+            exitCode = runClient(args);
         } else {
             // Иначе запускаем консольную версию
-            try {
-                runConsoleMode(args);
-            } catch (Exception e) {
-                System.err.println("Ошибка: " + e.getMessage());
-                e.printStackTrace();
+            exitCode = runConsole(args);
+        }
+        // Сборка, вызвавшая обфускатор, должна узнать о неудаче
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * Консольный режим; демон выполняет так же каждое задание.
+     * Возвращает код завершения: 0 - успех, 1 - ошибка
+     */
+    static int runConsole(String[] args) {
+        try {
+            return runConsoleMode(args) ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    private static int runTraining() {
+        Optional<StartupArchive> startup = StartupArchive.forCurrentJar();
+        if (startup.isEmpty()) {
+            System.err.println("Ошибка: архив CDS строится только для собранного JAR: java -jar Obfuscator.jar --train-cds");
+            return 1;
+        }
+        System.out.println("Обучающий запуск для архива CDS...");
+        long start = System.nanoTime();
+        try {
+            startup.get().train();
+        } catch (IOException e) {
+            System.err.println("✗ Ошибка: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        try {
+            System.out.printf("✓ Архив CDS создан за %d мс: %s (%d bytes)%n", elapsedMs,
+                    startup.get().getArchive(), Files.size(startup.get().getArchive()));
+        } catch (IOException e) {
+            System.out.println("✓ Архив CDS создан: " + startup.get().getArchive());
+        }
+        System.out.println("  Запуск с архивом: " + startup.get().getLauncher() + " <аргументы>");
+        System.out.println("  или java " + startup.get().getJvmOption() + " -jar ... (также через JAVA_TOOL_OPTIONS)");
+        return 0;
+    }
+
+    private static int runDaemon(String[] args) {
+        UnixDomainSocketAddress address = args.length >= 2
+                ? ObfuscationDaemon.parseAddress(args[1]) : ObfuscationDaemon.defaultAddress();
+        try {
+            new ObfuscationDaemon(address).serve();
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Ошибка: не удалось запустить демон на " + address + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static int runClient(String[] args) {
+        String[] jobArgs = Arrays.copyOfRange(args, 2, args.length);
+        try {
+            int exitCode = ObfuscationDaemon.connect(ObfuscationDaemon.parseAddress(args[1]), jobArgs);
+            if (exitCode >= 0) {
+                return exitCode;
             }
+        } catch (IOException e) {
+            System.err.println("Ошибка: связь с демоном прервана: " + e.getMessage());
+            return 1;
         }
+        // Демон не запущен: сборка не должна от этого зависеть
+        if (jobArgs.length == 1 && jobArgs[0].equals(ObfuscationDaemon.STOP)) {
+            System.out.println("Демон не запущен: " + args[1]);
+            return 0;
+        }
+        System.out.println("Демон не запущен (" + args[1] + "), обфускация выполняется в этом процессе");
+        return runConsole(jobArgs);
     }
 
     private static void launchGUI() {
@@ -36,10 +136,10 @@ public class ObfuscatorApp {
         });
     }
 
-    private static void runConsoleMode(String[] args) throws Exception {
+    private static boolean runConsoleMode(String[] args) throws Exception {
         if (args.length < 2) {
             printUsage();
-            return;
+            return false;
         }
 
         String input = args[0];
@@ -48,29 +148,97 @@ public class ObfuscatorApp {
         // Проверяем дополнительные опции
         boolean enableLoopObfuscation = false;
         boolean enableAsmObfuscation = true;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String classpath = null;
+        boolean useCache = true;
+        Path cacheDir = ObfuscationCache.defaultDirectory();
+        Path profilePath = null;
+        JitBudget budget = JitBudget.disabled();
+        OpaquePredicates opaque = OpaquePredicates.defaults();
+        // Дополнительные проходы ASM поверх базового и циклов
+        Set<AsmObfuscator.Pass> extraPasses = EnumSet.noneOf(AsmObfuscator.Pass.class);
+        ControlFlowFlattener flattener = ControlFlowFlattener.defaults();
+        ObfuscationSeed seed = ObfuscationSeed.none();
 
         for (int i = 2; i < args.length; i++) {
             if (args[i].equals("--loop-obfuscation")) {
                 enableLoopObfuscation = true;
             } else if (args[i].equals("--no-asm")) {
                 enableAsmObfuscation = false;
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ((args[i].equals("--classpath") || args[i].equals("-cp")) && i + 1 < args.length) {
+                classpath = args[++i];
+            } else if (args[i].equals("--cache-dir") && i + 1 < args.length) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--no-cache")) {
+                useCache = false;
+            } else if (args[i].equals("--profile") && i + 1 < args.length) {
+                profilePath = Paths.get(args[++i]);
+            } else if (args[i].equals("--jit-budget")) {
+                budget = JitBudget.defaults();
+            } else if (args[i].equals("--jit-thresholds") && i + 1 < args.length) {
+                budget = JitBudget.parse(args[++i]);
+            } else if (args[i].equals("--opaque-budget") && i + 1 < args.length) {
+                opaque = opaque.withBudget(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--encrypt-strings")) {
+                extraPasses.add(AsmObfuscator.Pass.STRINGS);
+            } else if (args[i].equals("--hide-calls")) {
+                extraPasses.add(AsmObfuscator.Pass.CALLS);
+            } else if (args[i].equals("--flatten")) {
+                extraPasses.add(AsmObfuscator.Pass.FLATTEN);
+            } else if (args[i].equals("--flatten-max-size") && i + 1 < args.length) {
+                extraPasses.add(AsmObfuscator.Pass.FLATTEN);
+                flattener = flattener.withMaxCodeSize(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--seed") && i + 1 < args.length) {
+                seed = ObfuscationSeed.parse(args[++i]);
             } else if (args[i].equals("--help") || args[i].equals("-h")) {
                 printUsage();
-                return;
+                return true;
             }
         }
 
         // Проверяем существование входного файла
-        java.nio.file.Path inputPath = java.nio.file.Paths.get(input);
-        if (!java.nio.file.Files.exists(inputPath)) {
+        Path inputPath = Paths.get(input);
+        if (!Files.exists(inputPath)) {
             System.err.println("Ошибка: входной файл не найден: " + input);
-            return;
+            return false;
+        }
+
+        // Профиль нагрузки: горячие методы получают меньше ложного кода
+        HotMethodProfile profile = HotMethodProfile.none();
+        if (profilePath != null) {
+            profile = loadProfile(profilePath);
+            if (profile == null) {
+                return false;
+            }
+        }
+
+        ObfuscationOptions options = ObfuscationOptions.defaults()
+                .withPasses(asmPasses(enableLoopObfuscation, extraPasses))
+                .withThreads(threads)
+                .withClasspath(classpath)
+                .withProfile(profile)
+                .withBudget(budget)
+                .withOpaquePredicates(opaque)
+                .withFlattener(flattener)
+                .withSeed(seed);
+
+        // JAR обрабатывается целиком за один запуск
+        if (input.toLowerCase().endsWith(".jar")) {
+            return runJarMode(inputPath, Paths.get(outputDir), enableLoopObfuscation, extraPasses, options);
+        }
+
+        // Директория обрабатывается как дерево исходников
+        if (Files.isDirectory(inputPath)) {
+            return runSourceTreeMode(inputPath, Paths.get(outputDir),
+                    enableLoopObfuscation, enableAsmObfuscation, extraPasses, options);
         }
 
         // Создаем директорию для вывода
-        java.nio.file.Path outputPath = java.nio.file.Paths.get(outputDir);
-        if (!java.nio.file.Files.exists(outputPath)) {
-            java.nio.file.Files.createDirectories(outputPath);
+        Path outputPath = Paths.get(outputDir);
+        if (!Files.exists(outputPath)) {
+            Files.createDirectories(outputPath);
         }
 
         System.out.println("=== Java Obfuscator - Консольный режим ===");
@@ -78,93 +246,136 @@ public class ObfuscatorApp {
         System.out.println("Выходная директория: " + outputDir);
         System.out.println("Расширенная обфускация циклов: " + (enableLoopObfuscation ? "ВКЛЮЧЕНА" : "ВЫКЛЮЧЕНА"));
         System.out.println("ASM обфускация: " + (enableAsmObfuscation ? "ВКЛЮЧЕНА" : "ВЫКЛЮЧЕНА"));
+        System.out.println("Бюджет JIT: " + (budget.isEnabled() ? "пороги " + budget : "ВЫКЛЮЧЕН"));
+        printExtraPasses(extraPasses);
+        printSeed(seed);
+
+        // 0. Кэш: при неизменных входе, опциях и версии обфускатора берем готовый результат
+        ObfuscationCache cache = useCache ? new ObfuscationCache(cacheDir) : null;
+        String cacheKey = null;
+        if (cache != null) {
+            // Имя файла входит в ключ: от него зависит генератор AST-обфускации при --seed
+            String cacheOptions = "name=" + inputPath.getFileName() + ";loop=" + enableLoopObfuscation + ";asm=" + enableAsmObfuscation
+                    + ";profile=" + (profilePath == null ? "none"
+                    : ObfuscationCache.digest(Files.readAllBytes(profilePath)))
+                    + ";jit=" + budget + ";opaque=" + opaque + ";extra=" + extraPasses + ";flatten=" + flattener
+                    + ";seed=" + seed;
+            cacheKey = cache.key(Files.readAllBytes(inputPath), cacheOptions);
+            List<Path> restored = cache.restore(cacheKey, outputPath);
+            if (restored != null) {
+                System.out.println("\n✓ Результат взят из кэша (" + cacheDir + ")");
+                for (Path p : restored) {
+                    System.out.printf("  • %-40s (%d bytes)%n", p.getFileName(), Files.size(p));
+                }
+                return true;
+            }
+        }
+        List<Path> written = new ArrayList<>();
+        boolean success = true;
 
         // 1. AST обфускация (JavaParser)
         System.out.println("\n[1/3] Применяем AST-обфускацию...");
-        SimpleObfuscator simpleObf = new SimpleObfuscator();
-        SimpleObfuscator.Result result = simpleObf.obfuscate(input);
-
-        // Сохраняем обфусцированный Java файл
-        java.nio.file.Path javaFilePath = outputPath.resolve(result.className + ".java");
-        java.nio.file.Files.write(javaFilePath, result.source.getBytes());
+        Random astRandom = seed.derive(inputPath.getFileName().toString());
+        SimpleObfuscator simpleObf = new SimpleObfuscator(true, new NameGenerator(astRandom.nextLong()), profile, astRandom);
+        // Исходник печатается прямо в файл; имя класса известно только после обфускации
+        Path printedPath = outputPath.resolve(inputPath.getFileName() + ".tmp");
+        SimpleObfuscator.Result result;
+        try (Writer out = Files.newBufferedWriter(printedPath)) {
+            result = simpleObf.obfuscate(inputPath, out);
+        }
+        Path javaFilePath = outputPath.resolve(result.className + ".java");
+        Files.move(printedPath, javaFilePath, StandardCopyOption.REPLACE_EXISTING);
+        written.add(javaFilePath);
         System.out.println("✓ AST-обфускация завершена");
         System.out.println("  Создан файл: " + javaFilePath);
 
-        // 2. Компиляция
+        // 2. Компиляция (в текущей JVM, без запуска javac и временных файлов)
         System.out.println("\n[2/3] Компилируем обфусцированный код...");
-        try {
-            ProcessBuilder javacBuilder = new ProcessBuilder(
-                    "javac",
-                    "-encoding", "UTF-8",
-                    "-d", outputDir,
-                    javaFilePath.toString()
-            );
-
-            Process javac = javacBuilder
-                    .redirectErrorStream(true)
-                    .start();
-
-            String output = new String(javac.getInputStream().readAllBytes());
-            int code = javac.waitFor();
-
-            if (code != 0) {
-                System.err.println("✗ Ошибка компиляции:");
-                System.err.println(output.substring(0, Math.min(output.length(), 500)));
-                return;
-            }
+        InMemoryCompiler.Result compiled = new InMemoryCompiler().compile(result.className, javaFilePath);
 
-            System.out.println("✓ Компиляция успешна");
-
-        } catch (Exception e) {
-            System.err.println("✗ Ошибка при компиляции: " + e.getMessage());
-            return;
+        if (!compiled.success) {
+            System.err.println("✗ Ошибка компиляции:");
+            System.err.println(compiled.diagnostics.substring(0, Math.min(compiled.diagnostics.length(), 500)));
+            return false;
         }
 
+        written.addAll(InMemoryCompiler.writeClasses(compiled, outputPath));
+        System.out.println("✓ Компиляция успешна");
+
         // 3. ASM обфускация (если включена)
         if (enableAsmObfuscation) {
             System.out.println("\n[3/3] Применяем ASM-обфускацию...");
-            java.nio.file.Path classFile = outputPath.resolve(result.className + ".class");
+            byte[] classBytes = compiled.findClass(result.className);
 
-            if (java.nio.file.Files.exists(classFile)) {
-                AsmObfuscator asmObf = new AsmObfuscator();
+            if (classBytes != null) {
+                // Класс уже переименован в *_obf, а в профиле записано исходное имя
+                String internalName = new ClassReader(classBytes).getClassName();
+                ClassHierarchy hierarchy = new ClassHierarchy();
+                compiled.classes.values().forEach(hierarchy::add);
+                AsmObfuscator asmObf = new AsmObfuscator(options.withProfile(profile.withClassAlias(internalName,
+                        internalName.substring(0, internalName.length() - "_obf".length()))), hierarchy);
 
+                // Дополнительные проходы добавляются к основным вариантам, но не к _renamed
                 try {
                     // 3.1. Базовая обфускация
-                    java.nio.file.Path asmClassFile = outputPath.resolve(result.className + "_obf.class");
-                    asmObf.obfuscateClass(classFile, asmClassFile);
+                    Path asmClassFile = outputPath.resolve(result.className + "_obf.class");
+                    Set<AsmObfuscator.Pass> basicPasses = EnumSet.of(AsmObfuscator.Pass.BASIC);
+                    basicPasses.addAll(extraPasses);
+                    Files.write(asmClassFile, asmObf.obfuscate(classBytes, basicPasses));
+                    written.add(asmClassFile);
                     System.out.println("✓ Базовая ASM-обфускация завершена");
                     System.out.println("  Создан файл: " + asmClassFile);
+                    printBudgetExclusions(asmObf);
 
-                    // 3.2. Расширенная обфускация циклов (если включена)
+                    // 3.2. Расширенная обфускация циклов (если включена):
+                    // базовый проход и проход циклов выполняются за один разбор класса
                     if (enableLoopObfuscation) {
-                        java.nio.file.Path enhancedClassFile = outputPath.resolve(result.className + "_enhanced.class");
-                        asmObf.obfuscateWithEnhancedLoops(classFile, enhancedClassFile);
+                        Path enhancedClassFile = outputPath.resolve(result.className + "_enhanced.class");
+                        Set<AsmObfuscator.Pass> enhancedPasses =
+                                EnumSet.of(AsmObfuscator.Pass.BASIC, AsmObfuscator.Pass.ENHANCED_LOOPS);
+                        enhancedPasses.addAll(extraPasses);
+                        Files.write(enhancedClassFile, asmObf.obfuscate(classBytes, enhancedPasses));
+                        written.add(enhancedClassFile);
                         System.out.println("✓ Расширенная обфускация циклов завершена");
                         System.out.println("  Создан файл: " + enhancedClassFile);
+                        printBudgetExclusions(asmObf);
                     }
 
                     // 3.3. Дополнительно: обфускация с переименованием
-                    java.nio.file.Path renamedClassFile = outputPath.resolve(result.className + "_renamed.class");
-                    asmObf.obfuscateWithRenaming(classFile, renamedClassFile);
+                    Path renamedClassFile = outputPath.resolve(result.className + "_renamed.class");
+                    Files.write(renamedClassFile, asmObf.obfuscateWithRenaming(classBytes));
+                    written.add(renamedClassFile);
                     System.out.println("✓ Обфускация с переименованием завершена");
                     System.out.println("  Создан файл: " + renamedClassFile);
 
                 } catch (Exception e) {
+                    success = false;
                     System.err.println("✗ Ошибка ASM-обфускации: " + e.getMessage());
                     System.err.println("  Пробуем создать хотя бы .class файл...");
 
-                    // Копируем оригинальный .class файл как резервный вариант
-                    java.nio.file.Path backupClassFile = outputPath.resolve(result.className + "_backup.class");
-                    java.nio.file.Files.copy(classFile, backupClassFile, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                    // Сохраняем оригинальный байт-код как резервный вариант
+                    Path backupClassFile = outputPath.resolve(result.className + "_backup.class");
+                    Files.write(backupClassFile, classBytes);
+                    written.add(backupClassFile);
                     System.out.println("  Создан резервный файл: " + backupClassFile);
                 }
             } else {
-                System.err.println("✗ Class файл не найден: " + classFile);
+                success = false;
+                System.err.println("✗ Класс не найден среди результатов компиляции: " + result.className);
             }
         } else {
             System.out.println("\n[3/3] ASM-обфускация пропущена по запросу пользователя");
         }
 
+        // Резервный результат после ошибки в кэш не попадает
+        if (cache != null && success) {
+            try {
+                cache.store(cacheKey, written);
+            } catch (IOException e) {
+                System.err.println("✗ Не удалось сохранить результат в кэш: " + e.getMessage());
+            }
+        }
+
         // 4. Итоги
         System.out.println("\n" + "=".repeat(60));
         System.out.println("ОБФУСКАЦИЯ ЗАВЕРШЕНА!");
@@ -172,19 +383,19 @@ public class ObfuscatorApp {
         System.out.println("Созданы следующие файлы:");
 
         try {
-            java.nio.file.Files.list(outputPath)
+            Files.list(outputPath)
                     .filter(p -> p.getFileName().toString().contains(result.className))
                     .sorted()
                     .forEach(p -> {
                         try {
-                            long size = java.nio.file.Files.size(p);
+                            long size = Files.size(p);
                             System.out.printf("  • %-40s (%d bytes)%n",
                                     p.getFileName(), size);
-                        } catch (java.io.IOException e) {
+                        } catch (IOException e) {
                             System.out.println("  • " + p.getFileName());
                         }
                     });
-        } catch (java.io.IOException e) {
+        } catch (IOException e) {
             System.out.println("Не удалось получить список файлов");
         }
 
@@ -213,24 +424,185 @@ public class ObfuscatorApp {
 
         // Информация о размерах файлов
         try {
-            java.nio.file.Path originalClass = outputPath.resolve(result.className + ".class");
-            java.nio.file.Path obfuscatedClass = outputPath.resolve(result.className + "_obf.class");
+            Path originalClass = outputPath.resolve(result.className + ".class");
+            Path obfuscatedClass = outputPath.resolve(result.className + "_obf.class");
 
-            if (java.nio.file.Files.exists(originalClass) && java.nio.file.Files.exists(obfuscatedClass)) {
-                long originalSize = java.nio.file.Files.size(originalClass);
-                long obfuscatedSize = java.nio.file.Files.size(obfuscatedClass);
+            if (Files.exists(originalClass) && Files.exists(obfuscatedClass)) {
+                long originalSize = Files.size(originalClass);
+                long obfuscatedSize = Files.size(obfuscatedClass);
                 double increase = ((double)obfuscatedSize / originalSize - 1) * 100;
 
                 System.out.printf("✓ Размер файла увеличен на: %.1f%%\n", increase);
             }
-        } catch (java.io.IOException e) {
+        } catch (IOException e) {
             // Игнорируем ошибки при получении размеров
         }
+        return success;
+    }
+
+    /**
+     * Печатает методы, которые бюджет JIT оставил без ложного кода, и проходы,
+     * которые из-за них не применены ко всему классу
+     */
+    private static void printBudgetExclusions(AsmObfuscator asmObf) {
+        for (String method : asmObf.getBudgetExclusions()) {
+            System.out.println("  ⚖ Без изменений (порог JIT): " + method);
+        }
+        if (!asmObf.getBudgetDroppedPasses().isEmpty()) {
+            System.out.println("  ⚠ Не применены ко всему классу (порог JIT): " + asmObf.getBudgetDroppedPasses());
+        }
+    }
+
+    /**
+     * Читает запись JFR и печатает самые горячие методы. При ошибке возвращает null
+     */
+    private static HotMethodProfile loadProfile(Path profilePath) {
+        try {
+            HotMethodProfile profile = HotMethodProfile.fromJfr(profilePath);
+            System.out.println("Профиль JFR: " + profilePath + " (" + profile.getTotalSamples() + " сэмплов)");
+            profile.hottest(5).forEach(m -> System.out.println("  🔥 " + m));
+            return profile;
+        } catch (IOException e) {
+            System.err.println("Ошибка: не удалось прочитать запись JFR " + profilePath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean runJarMode(Path inputJar, Path output,
+                                      boolean enableLoopObfuscation, Set<AsmObfuscator.Pass> extraPasses,
+                                      ObfuscationOptions options) throws Exception {
+        // Выход - либо путь к .jar, либо директория, куда кладется JAR с тем же именем
+        Path outputJar = output;
+        if (!output.toString().toLowerCase().endsWith(".jar")) {
+            Files.createDirectories(output);
+            outputJar = output.resolve(inputJar.getFileName());
+        } else if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+
+        if (Files.exists(outputJar) && Files.isSameFile(inputJar, outputJar)) {
+            System.err.println("Ошибка: выходной JAR совпадает с входным: " + outputJar);
+            return false;
+        }
+
+        System.out.println("=== Java Obfuscator - Пакетный режим (JAR) ===");
+        System.out.println("Входной JAR: " + inputJar);
+        System.out.println("Выходной JAR: " + outputJar);
+        System.out.println("Расширенная обфускация циклов: " + (enableLoopObfuscation ? "ВКЛЮЧЕНА" : "ВЫКЛЮЧЕНА"));
+        System.out.println("Бюджет JIT: " + (options.getBudget().isEnabled() ? "пороги " + options.getBudget() : "ВЫКЛЮЧЕН"));
+        printExtraPasses(extraPasses);
+        printSeed(options.getSeed());
+        System.out.println("Потоков: " + options.getThreads());
+
+        long start = System.nanoTime();
+        JarObfuscator jarObf = new JarObfuscator(options);
+        JarObfuscator.Result result = jarObf.obfuscate(inputJar, outputJar);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("ОБФУСКАЦИЯ JAR ЗАВЕРШЕНА за " + elapsedMs + " мс");
+        System.out.println("=".repeat(60));
+        System.out.println("✓ Обфусцировано классов: " + result.classesProcessed);
+        if (result.classesSkipped > 0) {
+            System.out.println("✓ Пропущено уже обфусцированных классов: " + result.classesSkipped);
+        }
+        System.out.println("✓ Скопировано ресурсов без перепаковки: " + result.resourcesCopied);
+
+        if (!result.weakenedClasses.isEmpty()) {
+            System.out.println("⚠ Классы без части проходов (порог JIT): " + result.weakenedClasses.size());
+            result.weakenedClasses.stream()
+                    .limit(20)
+                    .forEach(c -> System.out.println("  • " + c));
+        }
+
+        if (!result.failedClasses.isEmpty()) {
+            System.err.println("✗ Не удалось обфусцировать (оставлены без изменений): " + result.failedClasses.size());
+            result.failedClasses.stream()
+                    .limit(20)
+                    .forEach(f -> System.err.println("  • " + f));
+        }
+
+        try {
+            long originalSize = Files.size(inputJar);
+            long obfuscatedSize = Files.size(outputJar);
+            System.out.printf("✓ Размер JAR: %d → %d байт%n", originalSize, obfuscatedSize);
+        } catch (IOException e) {
+            // Игнорируем ошибки при получении размеров
+        }
+        return result.failedClasses.isEmpty();
+    }
+
+    private static boolean runSourceTreeMode(Path sourceRoot, Path outputDir,
+                                             boolean enableLoopObfuscation, boolean enableAsmObfuscation,
+                                             Set<AsmObfuscator.Pass> extraPasses,
+                                             ObfuscationOptions options) throws Exception {
+        Files.createDirectories(outputDir);
+
+        System.out.println("=== Java Obfuscator - Режим дерева исходников ===");
+        System.out.println("Корень исходников: " + sourceRoot);
+        System.out.println("Выходная директория: " + outputDir);
+        System.out.println("Расширенная обфускация циклов: " + (enableLoopObfuscation ? "ВКЛЮЧЕНА" : "ВЫКЛЮЧЕНА"));
+        System.out.println("ASM обфускация: " + (enableAsmObfuscation ? "ВКЛЮЧЕНА" : "ВЫКЛЮЧЕНА"));
+        System.out.println("Бюджет JIT: " + (options.getBudget().isEnabled() ? "пороги " + options.getBudget() : "ВЫКЛЮЧЕН"));
+        printExtraPasses(extraPasses);
+        printSeed(options.getSeed());
+        System.out.println("Потоков: " + options.getThreads());
+
+        long start = System.nanoTime();
+        SourceTreeObfuscator treeObf = new SourceTreeObfuscator(options, enableAsmObfuscation);
+        SourceTreeObfuscator.Result result = treeObf.obfuscate(sourceRoot, outputDir);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("ОБФУСКАЦИЯ ДЕРЕВА ЗАВЕРШЕНА за " + elapsedMs + " мс");
+        System.out.println("=".repeat(60));
+        System.out.println("✓ Исходных файлов: " + result.sourceFiles + " → " + outputDir.resolve("src"));
+
+        if (result.compileErrors != null) {
+            System.err.println("✗ Ошибка компиляции:");
+            System.err.println(result.compileErrors.substring(0, Math.min(result.compileErrors.length(), 2000)));
+        } else {
+            System.out.println("✓ Классов: " + result.classesWritten + " → " + outputDir.resolve("classes"));
+        }
+
+        if (!result.failedFiles.isEmpty()) {
+            System.err.println("✗ Не удалось обфусцировать (оставлены без изменений): " + result.failedFiles.size());
+            result.failedFiles.stream()
+                    .limit(20)
+                    .forEach(f -> System.err.println("  • " + f));
+        }
+        return result.compileErrors == null && result.failedFiles.isEmpty();
+    }
+
+    /**
+     * Проходы ASM для пакетных режимов
+     */
+    private static Set<AsmObfuscator.Pass> asmPasses(boolean enableLoopObfuscation,
+                                                               Set<AsmObfuscator.Pass> extraPasses) {
+        Set<AsmObfuscator.Pass> passes = EnumSet.of(AsmObfuscator.Pass.BASIC);
+        if (enableLoopObfuscation) {
+            passes.add(AsmObfuscator.Pass.ENHANCED_LOOPS);
+        }
+        passes.addAll(extraPasses);
+        return passes;
+    }
+
+    private static void printExtraPasses(Set<AsmObfuscator.Pass> extraPasses) {
+        System.out.println("Шифрование строк: "
+                + (extraPasses.contains(AsmObfuscator.Pass.STRINGS) ? "ВКЛЮЧЕНО" : "ВЫКЛЮЧЕНО"));
+        System.out.println("Скрытие вызовов: "
+                + (extraPasses.contains(AsmObfuscator.Pass.CALLS) ? "ВКЛЮЧЕНО" : "ВЫКЛЮЧЕНО"));
+        System.out.println("Уплощение потока управления: "
+                + (extraPasses.contains(AsmObfuscator.Pass.FLATTEN) ? "ВКЛЮЧЕНО" : "ВЫКЛЮЧЕНО"));
+    }
+
+    private static void printSeed(ObfuscationSeed seed) {
+        System.out.println("Seed: " + (seed.isDeterministic() ? seed + " (воспроизводимый результат)" : "случайный"));
     }
 
     private static void printUsage() {
         System.out.println("=== Java Obfuscator ===");
-        System.out.println("Два режима работы:");
+        System.out.println("Три режима работы:");
         System.out.println();
         System.out.println("1. GUI режим (по умолчанию):");
         System.out.println("   java -jar Obfuscator.jar");
@@ -239,15 +611,44 @@ public class ObfuscatorApp {
         System.out.println();
         System.out.println("2. Консольный режим:");
         System.out.println("   java -jar Obfuscator.jar input.java outputDir [опции]");
+        System.out.println("   java -jar Obfuscator.jar input.jar output.jar|outputDir [опции]");
+        System.out.println("   java -jar Obfuscator.jar sourceRoot/ outputDir [опции]");
         System.out.println();
         System.out.println("Опции:");
         System.out.println("  --loop-obfuscation     Включить расширенную обфускацию циклов");
         System.out.println("  --no-asm               Отключить ASM обфускацию");
+        System.out.println("  --threads N            Число потоков для JAR и дерева исходников (по умолчанию - число ядер)");
+        System.out.println("  --classpath, -cp CP    Classpath для компиляции дерева исходников и библиотеки JAR");
+        System.out.println("  --cache-dir DIR        Директория кэша результатов (по умолчанию ~/.cache/obfuscator)");
+        System.out.println("  --no-cache             Не использовать кэш результатов");
+        System.out.println("  --profile FILE.jfr     Запись JFR нагрузочного теста: горячие методы обфусцируются мягче");
+        System.out.println("  --jit-budget           Не давать ложному коду переводить методы через пороги JIT 35/325/8000 байт");
+        System.out.println("  --jit-thresholds LIST  То же с заданными порогами, например 35,325,8000");
+        System.out.println("  --opaque-budget N      Тактов интерпретатора на непрозрачные предикаты в методе (по умолчанию "
+                + OpaquePredicates.DEFAULT_CYCLES_PER_METHOD + ", 0 - без предикатов)");
+        System.out.println("  --encrypt-strings      Шифровать строковые константы (расшифровка один раз, через ConstantDynamic)");
+        System.out.println("  --hide-calls           Заменить вызовы методов на invokedynamic с зашифрованной целью");
+        System.out.println("  --flatten              Уплощать поток управления холодных методов без циклов");
+        System.out.println("  --flatten-max-size N   То же для методов не больше N байт кода (по умолчанию "
+                + ControlFlowFlattener.DEFAULT_MAX_CODE_SIZE + ")");
+        System.out.println("  --seed VALUE           Главный seed (число или строка): одинаковый вход дает одинаковые байты");
         System.out.println("  --help, -h             Показать эту справку");
         System.out.println();
+        System.out.println("Быстрый старт: java -jar Obfuscator.jar --train-cds  (архив CDS для этого JAR");
+        System.out.println("   и скрипт запуска с ним в " + ObfuscationCache.defaultDirectory().resolve("cds") + ")");
+        System.out.println();
+        System.out.println("3. Резидентный режим (без старта JVM на каждый запуск):");
+        System.out.println("   java -jar Obfuscator.jar --daemon [сокет]   (по умолчанию "
+                + ObfuscationDaemon.defaultAddress().getPath() + ")");
+        System.out.println("   java -jar Obfuscator.jar --connect сокет input outputDir [опции]");
+        System.out.println("   java -jar Obfuscator.jar --connect сокет --stop");
+        System.out.println();
         System.out.println("Примеры:");
         System.out.println("  java -jar Obfuscator.jar Test.java ./output");
         System.out.println("  java -jar Obfuscator.jar MyClass.java ./dist --loop-obfuscation");
         System.out.println("  java -jar Obfuscator.jar App.java ./build --no-asm");
+        System.out.println("  java -jar Obfuscator.jar app.jar app-obf.jar --threads 8");
+        System.out.println("  java -jar Obfuscator.jar app.jar app-obf.jar --seed 42");
+        System.out.println("  java -jar Obfuscator.jar src/main/java ./obf --loop-obfuscation");
     }
 }
\ No newline at end of file
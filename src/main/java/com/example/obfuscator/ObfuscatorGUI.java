@@ -781,53 +781,30 @@ public class ObfuscatorGUI extends JFrame {
         // Запускаем в отдельном потоке
         executor.submit(() -> {
             try {
-                // Шаг 0: Рассчитываем метрики исходного кода
+                // Шаг 1: AST обфускация (всегда выполняется, исходник передается строкой).
+                // Метрики до и после считаются по тому же дереву, без повторного разбора
                 progressBar.setValue(5);
-                progressBar.setString("Анализ кода...");
-                statusLabel.setText("🔍 Анализируем исходный код...");
-                logger.info("📊 === АНАЛИЗ ИСХОДНОГО КОДА ===");
-
-                ObfuscationMetrics.Metrics originalSourceMetrics =
-                        ObfuscationMetrics.calculateSourceCodeMetrics(sourceCode);
-                logger.success("✅ Рассчитаны метрики исходного кода");
-                logger.info("   📏 Строк кода: " + originalSourceMetrics.getLinesOfCode());
-                logger.info("   🛠️ Методов: " + originalSourceMetrics.getNumberOfMethods());
-                logger.info("   🧮 Цикломатическая сложность: " + originalSourceMetrics.getCyclomaticComplexity());
-
-                // Шаг 1: Сохраняем код во временный файл
-                progressBar.setValue(10);
-                progressBar.setString("Подготовка...");
-                statusLabel.setText("📁 Создаем временный файл...");
-                logger.info("📦 === ПОДГОТОВКА К ОБФУСКАЦИИ ===");
-                logger.info("📝 Создаем временный файл...");
-
-                Path tempDir = Files.createTempDirectory("obfuscator_");
-                Path inputFile = tempDir.resolve("InputClass.java");
-                Files.write(inputFile, sourceCode.getBytes());
-                logger.success("✅ Создан временный файл: " + inputFile);
-
-                // Шаг 2: AST обфускация (всегда выполняется)
-                progressBar.setValue(30);
                 progressBar.setString("AST обфускация...");
                 statusLabel.setText("🌳 Выполняем AST обфускацию...");
                 logger.info("🔄 [1/2] Применяем AST-обфускацию...");
 
                 SimpleObfuscator simpleObf = new SimpleObfuscator();
-                SimpleObfuscator.Result astResult = simpleObf.obfuscate(inputFile.toString());
+                SimpleObfuscator.Result astResult = simpleObf.obfuscateSource(sourceCode);
+
+                logger.info("📊 === АНАЛИЗ ИСХОДНОГО КОДА ===");
+                ObfuscationMetrics.Metrics originalSourceMetrics = astResult.originalMetrics;
+                logger.info("   📏 Строк кода: " + originalSourceMetrics.getLinesOfCode());
+                logger.info("   🛠️ Методов: " + originalSourceMetrics.getNumberOfMethods());
+                logger.info("   🧮 Цикломатическая сложность: " + originalSourceMetrics.getCyclomaticComplexity());
 
+                progressBar.setValue(30);
                 logger.success("✅ AST-обфускация завершена");
                 logger.info("   🏷️ Имя класса: " + astResult.className);
 
-                Path javaFilePath = tempDir.resolve(astResult.className + ".java");
-                Files.write(javaFilePath, astResult.source.getBytes());
-
                 // Создаем объект метрик с обновленным кодом
                 currentMetrics = new ObfuscationMetrics(astResult.className);
                 currentMetrics.setOriginalMetrics(originalSourceMetrics);
-
-                // Рассчитываем метрики после AST обфускации
-                ObfuscationMetrics.Metrics astMetrics = ObfuscationMetrics.calculateSourceCodeMetrics(astResult.source);
-                currentMetrics.setObfuscatedMetrics(astMetrics);
+                currentMetrics.setObfuscatedMetrics(astResult.obfuscatedMetrics);
 
                 // Обновляем output text area
                 final String obfuscatedCode = astResult.source;
@@ -844,49 +821,38 @@ public class ObfuscatorGUI extends JFrame {
                     logger.info("🔧 [2/2] Компилируем и применяем ASM-обфускацию...");
 
                     try {
-                        ProcessBuilder javacBuilder = new ProcessBuilder(
-                                "javac",
-                                "-encoding", "UTF-8",
-                                "-d", tempDir.toString(),
-                                javaFilePath.toString()
-                        );
-
-                        Process javac = javacBuilder.start();
-                        String output = new String(javac.getInputStream().readAllBytes());
-                        int code = javac.waitFor();
-
-                        if (code != 0) {
+                        InMemoryCompiler.Result compiled =
+                                new InMemoryCompiler().compile(astResult.className, astResult.source);
+
+                        if (!compiled.success) {
                             logger.error("❌ Ошибка компиляции:");
-                            logger.error(output.substring(0, Math.min(output.length(), 500)));
+                            logger.error(compiled.diagnostics.substring(0, Math.min(compiled.diagnostics.length(), 500)));
                             throw new RuntimeException("Ошибка компиляции");
                         }
 
                         logger.success("✅ Компиляция успешна");
 
-                        // Шаг 4: ASM обфускация байт-кода
+                        // Шаг 3: ASM обфускация байт-кода
                         progressBar.setValue(80);
                         progressBar.setString("ASM обфускация...");
                         statusLabel.setText("🔧 Выполняем ASM обфускацию байт-кода...");
                         logger.info("🔬 Применяем ASM-обфускацию байт-кода...");
 
-                        Path classFile = tempDir.resolve(astResult.className + ".class");
-                        if (Files.exists(classFile)) {
+                        byte[] classBytes = compiled.findClass(astResult.className);
+                        if (classBytes != null) {
                             // Рассчитываем метрики оригинального байт-кода
                             ObfuscationMetrics.Metrics originalBytecodeMetrics =
-                                    ObfuscationMetrics.calculateBytecodeMetrics(classFile);
+                                    ObfuscationMetrics.calculateBytecodeMetrics(classBytes);
 
                             // Применяем ASM обфускацию (всегда базовый метод, так как нет выбора)
                             AsmObfuscator asmObf = new AsmObfuscator();
-                            Path asmClassFile = tempDir.resolve(astResult.className + "_obf.class");
-
-                            // Всегда используем базовый метод ASM обфускации
-                            asmObf.obfuscateClass(classFile, asmClassFile);
+                            byte[] asmClassBytes = asmObf.obfuscateClass(classBytes);
 
                             logger.success("✅ ASM-обфускация байт-кода завершена");
 
                             // Рассчитываем метрики обфусцированного байт-кода
                             ObfuscationMetrics.Metrics obfuscatedBytecodeMetrics =
-                                    ObfuscationMetrics.calculateBytecodeMetrics(asmClassFile);
+                                    ObfuscationMetrics.calculateBytecodeMetrics(asmClassBytes);
 
                             // Обновляем метрики
                             currentMetrics.getOriginalMetrics().setFileSizeBytes(
@@ -895,6 +861,14 @@ public class ObfuscatorGUI extends JFrame {
                                     originalBytecodeMetrics.getBytecodeInstructions());
                             currentMetrics.getOriginalMetrics().setConstantPoolSize(
                                     originalBytecodeMetrics.getConstantPoolSize());
+                            currentMetrics.getOriginalMetrics().setNumberOfFields(
+                                    originalBytecodeMetrics.getNumberOfFields());
+                            currentMetrics.getOriginalMetrics().setMaxStack(
+                                    originalBytecodeMetrics.getMaxStack());
+                            currentMetrics.getOriginalMetrics().setMaxLocals(
+                                    originalBytecodeMetrics.getMaxLocals());
+                            currentMetrics.getOriginalMetrics().setMethodSizeHistogram(
+                                    originalBytecodeMetrics.getMethodSizeHistogram());
 
                             currentMetrics.getObfuscatedMetrics().setFileSizeBytes(
                                     obfuscatedBytecodeMetrics.getFileSizeBytes());
@@ -902,12 +876,19 @@ public class ObfuscatorGUI extends JFrame {
                                     obfuscatedBytecodeMetrics.getBytecodeInstructions());
                             currentMetrics.getObfuscatedMetrics().setConstantPoolSize(
                                     obfuscatedBytecodeMetrics.getConstantPoolSize());
+                            currentMetrics.getObfuscatedMetrics().setNumberOfFields(
+                                    obfuscatedBytecodeMetrics.getNumberOfFields());
+                            currentMetrics.getObfuscatedMetrics().setMaxStack(
+                                    obfuscatedBytecodeMetrics.getMaxStack());
+                            currentMetrics.getObfuscatedMetrics().setMaxLocals(
+                                    obfuscatedBytecodeMetrics.getMaxLocals());
+                            currentMetrics.getObfuscatedMetrics().setMethodSizeHistogram(
+                                    obfuscatedBytecodeMetrics.getMethodSizeHistogram());
 
                             logger.info("   📏 Размер файла: " + originalBytecodeMetrics.getFileSizeBytes() +
                                     " → " + obfuscatedBytecodeMetrics.getFileSizeBytes() + " байт");
                             logger.info("   🧩 Инструкций байт-кода: " + originalBytecodeMetrics.getBytecodeInstructions() +
                                     " → " + obfuscatedBytecodeMetrics.getBytecodeInstructions());
-                            logger.info("   💾 Создан файл: " + asmClassFile);
                         }
                     } catch (Exception e) {
                         logger.warning("⚠️ ASM обфускация пропущена: " + e.getMessage());
@@ -957,19 +938,6 @@ public class ObfuscatorGUI extends JFrame {
                     timer2.start();
                 });
 
-                // Очищаем временные файлы
-                try {
-                    Files.walk(tempDir)
-                            .sorted((a, b) -> -a.compareTo(b))
-                            .forEach(path -> {
-                                try { Files.delete(path); }
-                                catch (IOException e) { /* Игнорируем */ }
-                            });
-                    logger.debug("🧹 Временные файлы очищены");
-                } catch (IOException e) {
-                    logger.warning("⚠️ Ошибка при удалении временных файлов: " + e.getMessage());
-                }
-
             } catch (Exception e) {
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("❌ Ошибка: " + e.getMessage());
@@ -0,0 +1,46 @@
+package com.example.obfuscator;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.function.Consumer;
+
+/**
+ * Непрозрачный предикат: условный переход, который всегда выполняется,
+ * но это нельзя увидеть по байт-коду без знания теории чисел.
+ *
+ * Каждый предикат описывает свою цену: сколько тактов он стоит в интерпретаторе,
+ * сколько байт кода добавляет и может ли JIT свернуть его в константу (тогда после
+ * компиляции он бесплатен, но и защиты не дает). Свои предикаты можно добавить,
+ * реализовав этот интерфейс и передав их в OpaquePredicates.
+ */
+public interface OpaquePredicate {
+
+    /**
+     * Короткое имя для отчетов и бенчмарков
+     */
+    String name();
+
+    /**
+     * Стоимость одного вычисления в интерпретаторе, в тактах
+     */
+    int cycles();
+
+    /**
+     * Размер вставляемого кода в байтах, включая загрузку seed
+     */
+    int bytes();
+
+    /**
+     * Может ли JIT доказать, что условие постоянно, и убрать его
+     */
+    boolean jitFoldable();
+
+    /**
+     * Вставляет код, который всегда переходит на target. Стек операндов после
+     * перехода тот же, что и до вставки.
+     *
+     * @param seed кладет на стек int, значение которого JIT не знает
+     */
+    void emitAlwaysTrue(MethodVisitor mv, Label target, Consumer<MethodVisitor> seed);
+}
@@ -0,0 +1,239 @@
+package com.example.obfuscator;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Библиотека непрозрачных предикатов и бюджет их стоимости на метод.
+ *
+ * Встроенные предикаты вычисляются от seed - нефинального статического поля,
+ * которое JIT не может считать константой. Поле никто не пишет, и оно всегда
+ * равно 0: это не источник случайности, а значение, неизвестное компилятору.
+ * Тождества верны для любого int,
+ * в том числе с переполнением, потому что опираются только на остатки по
+ * модулю степени двойки. Стоимость в тактах измерена OpaquePredicateBenchmark
+ * в интерпретаторе (-Xint, JDK 21, 2.1 ГГц) и округлена вверх; после JIT каждый
+ * предикат стоит меньше наносекунды.
+ */
+public class OpaquePredicates {
+
+    /**
+     * x * (x + 1) четно: произведение соседних чисел
+     */
+    public static final OpaquePredicate CONSECUTIVE_PRODUCT = new Builtin(
+            "consecutive-product", 27, 12, false) {
+        @Override
+        public void emitAlwaysTrue(MethodVisitor mv, Label target, Consumer<MethodVisitor> seed) {
+            seed.accept(mv);
+            mv.visitInsn(DUP);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(IADD);
+            mv.visitInsn(IMUL);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(IAND);
+            mv.visitJumpInsn(IFEQ, target);
+        }
+    };
+
+    /**
+     * (x * x) mod 4 - это 0 или 1: квадраты по модулю 4
+     */
+    public static final OpaquePredicate SQUARE_MOD_4 = new Builtin(
+            "square-mod-4", 26, 11, false) {
+        @Override
+        public void emitAlwaysTrue(MethodVisitor mv, Label target, Consumer<MethodVisitor> seed) {
+            seed.accept(mv);
+            mv.visitInsn(DUP);
+            mv.visitInsn(IMUL);
+            mv.visitInsn(ICONST_3);
+            mv.visitInsn(IAND);
+            mv.visitInsn(ICONST_2);
+            mv.visitJumpInsn(IF_ICMPLT, target);
+        }
+    };
+
+    /**
+     * 7 * x^2 - 1 != x^2: по модулю 8 квадраты дают {0, 1, 4}, а 7 * x^2 - 1 - {7, 6, 3}
+     */
+    public static final OpaquePredicate SEVEN_SQUARES = new Builtin(
+            "seven-squares", 29, 14, false) {
+        @Override
+        public void emitAlwaysTrue(MethodVisitor mv, Label target, Consumer<MethodVisitor> seed) {
+            seed.accept(mv);
+            mv.visitInsn(DUP);
+            mv.visitInsn(IMUL);
+            mv.visitInsn(DUP);
+            mv.visitIntInsn(BIPUSH, 7);
+            mv.visitInsn(IMUL);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(ISUB);
+            mv.visitJumpInsn(IF_ICMPNE, target);
+        }
+    };
+
+    /**
+     * ICONST_1; IFNE - прежний вариант. JIT сворачивает его сразу, поэтому он
+     * не входит в библиотеку по умолчанию и нужен только для сравнения
+     */
+    public static final OpaquePredicate CONSTANT = new Builtin(
+            "constant", 9, 4, true) {
+        @Override
+        public void emitAlwaysTrue(MethodVisitor mv, Label target, Consumer<MethodVisitor> seed) {
+            mv.visitInsn(ICONST_1);
+            mv.visitJumpInsn(IFNE, target);
+        }
+    };
+
+    // Тактов на метод по умолчанию: до трех предикатов, но не на каждом переходе
+    public static final int DEFAULT_CYCLES_PER_METHOD = 90;
+
+    private static final List<OpaquePredicate> DEFAULT_LIBRARY =
+            List.of(CONSECUTIVE_PRODUCT, SQUARE_MOD_4, SEVEN_SQUARES);
+
+    private final List<OpaquePredicate> predicates;
+    private final int cyclesPerMethod;
+
+    public OpaquePredicates(List<OpaquePredicate> predicates, int cyclesPerMethod) {
+        if (cyclesPerMethod < 0) {
+            throw new IllegalArgumentException("Бюджет предикатов не может быть отрицательным: " + cyclesPerMethod);
+        }
+        this.predicates = List.copyOf(predicates);
+        this.cyclesPerMethod = cyclesPerMethod;
+    }
+
+    /**
+     * Встроенные предикаты с бюджетом по умолчанию
+     */
+    public static OpaquePredicates defaults() {
+        return new OpaquePredicates(DEFAULT_LIBRARY, DEFAULT_CYCLES_PER_METHOD);
+    }
+
+    /**
+     * Без предикатов: места вставки пропускаются
+     */
+    public static OpaquePredicates none() {
+        return new OpaquePredicates(List.of(), 0);
+    }
+
+    /**
+     * Та же библиотека с другим бюджетом тактов на метод
+     */
+    public OpaquePredicates withBudget(int cyclesPerMethod) {
+        return new OpaquePredicates(predicates, cyclesPerMethod);
+    }
+
+    public List<OpaquePredicate> getPredicates() {
+        return predicates;
+    }
+
+    public int getCyclesPerMethod() {
+        return cyclesPerMethod;
+    }
+
+    /**
+     * Новый бюджет для одного метода
+     *
+     * @param maxBytes сколько байт кода могут добавить предикаты метода
+     *                 (запас до порога JIT или Integer.MAX_VALUE)
+     */
+    public MethodBudget forMethod(int maxBytes) {
+        return new MethodBudget(cyclesPerMethod, maxBytes);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (OpaquePredicate predicate : predicates) {
+            sb.append(predicate.name()).append(',');
+        }
+        return sb.append(cyclesPerMethod).toString();
+    }
+
+    /**
+     * Остаток бюджета одного метода: каждый выбранный предикат списывает свою стоимость
+     * в тактах и свой размер в байтах
+     */
+    public class MethodBudget {
+        private int remaining;
+        private int remainingBytes;
+
+        private MethodBudget(int remaining, int remainingBytes) {
+            this.remaining = remaining;
+            this.remainingBytes = remainingBytes;
+        }
+
+        /**
+         * Случайный предикат, который еще помещается в бюджет, или null.
+         * Предикаты, которые JIT может свернуть, не выбираются: они не защищают
+         * скомпилированный код
+         *
+         * @param tailBytes размер недостижимой ветки, которую вызывающий вставит после
+         *                  предиката; списывается из байт вместе с самим предикатом
+         */
+        public OpaquePredicate next(Random random, int tailBytes) {
+            List<OpaquePredicate> affordable = new ArrayList<>();
+            for (OpaquePredicate predicate : predicates) {
+                if (!predicate.jitFoldable() && predicate.cycles() <= remaining
+                        && predicate.bytes() + tailBytes <= remainingBytes) {
+                    affordable.add(predicate);
+                }
+            }
+            if (affordable.isEmpty()) {
+                return null;
+            }
+            OpaquePredicate chosen = affordable.get(random.nextInt(affordable.size()));
+            remaining -= chosen.cycles();
+            remainingBytes -= chosen.bytes() + tailBytes;
+            return chosen;
+        }
+
+        public int getRemaining() {
+            return remaining;
+        }
+
+        public int getRemainingBytes() {
+            return remainingBytes;
+        }
+    }
+
+    private abstract static class Builtin implements OpaquePredicate {
+        private final String name;
+        private final int cycles;
+        private final int bytes;
+        private final boolean jitFoldable;
+
+        Builtin(String name, int cycles, int bytes, boolean jitFoldable) {
+            this.name = name;
+            this.cycles = cycles;
+            this.bytes = bytes;
+            this.jitFoldable = jitFoldable;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int cycles() {
+            return cycles;
+        }
+
+        @Override
+        public int bytes() {
+            return bytes;
+        }
+
+        @Override
+        public boolean jitFoldable() {
+            return jitFoldable;
+        }
+    }
+}
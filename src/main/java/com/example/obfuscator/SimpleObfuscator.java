@@ -2,14 +2,18 @@ package com.example.obfuscator;
 
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.*;
 import com.github.javaparser.ast.expr.*;
 import com.github.javaparser.ast.stmt.*;
-import com.github.javaparser.ast.type.PrimitiveType;
 import com.github.javaparser.ast.Modifier;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class SimpleObfuscator {
@@ -37,33 +41,151 @@ public class SimpleObfuscator {
             "DOCUMENT: add javadoc"
     );
 
-    private final Random random = new Random();
+    private final Random random;
+
+    // Переименовывать ли публичный класс (в режиме дерева исходников имена классов
+    // сохраняются, иначе ссылки из других файлов перестанут компилироваться)
+    private final boolean renameClass;
+
+    // Имена принадлежат заданию: у каждого SimpleObfuscator свой генератор
+    private final NameGenerator names;
+
+    // Горячие методы получают меньше ложного кода или не получают его вовсе
+    private final HotMethodProfile profile;
+
+    public SimpleObfuscator() {
+        this(true);
+    }
+
+    public SimpleObfuscator(boolean renameClass) {
+        this(renameClass, new NameGenerator());
+    }
+
+    public SimpleObfuscator(boolean renameClass, NameGenerator names) {
+        this(renameClass, names, HotMethodProfile.none());
+    }
+
+    public SimpleObfuscator(boolean renameClass, NameGenerator names, HotMethodProfile profile) {
+        this(renameClass, names, profile, new Random());
+    }
+
+    /**
+     * @param random генератор ложного кода; с --seed выводится из seed задания и имени файла
+     */
+    public SimpleObfuscator(boolean renameClass, NameGenerator names, HotMethodProfile profile, Random random) {
+        this.renameClass = renameClass;
+        this.names = names;
+        this.profile = profile;
+        this.random = random;
+    }
 
     public static class Result {
+        // null, если исходник напечатан сразу в Writer
         public final String source;
         public final String className;
+        // Метрики исходника до и после AST-преобразований, посчитанные по тому же дереву
+        public final ObfuscationMetrics.Metrics originalMetrics;
+        public final ObfuscationMetrics.Metrics obfuscatedMetrics;
 
-        public Result(String source, String className) {
+        public Result(String source, String className,
+                      ObfuscationMetrics.Metrics originalMetrics, ObfuscationMetrics.Metrics obfuscatedMetrics) {
             this.source = source;
             this.className = className;
+            this.originalMetrics = originalMetrics;
+            this.obfuscatedMetrics = obfuscatedMetrics;
+        }
+    }
+
+    public Result obfuscate(String inputPath) throws IOException {
+        return obfuscateSource(Files.readString(Paths.get(inputPath)));
+    }
+
+    /**
+     * Обфускация исходного кода, переданного строкой (без временных файлов)
+     */
+    public Result obfuscateSource(String source) {
+        return obfuscate(StaticJavaParser.parse(source), source);
+    }
+
+    /**
+     * Обфускация файла с печатью прямо в out (см. StreamingPrinter): обфусцированный
+     * исходник не собирается в строку, поэтому source в результате равен null.
+     * В памяти остается дерево и буфер вывода, а не несколько копий файла
+     */
+    public Result obfuscate(Path input, Writer out) throws IOException {
+        names.reset();
+
+        // Строки исходника считаются при чтении файла, без строки на весь файл
+        ObfuscationMetrics.SourceLines originalLines = new ObfuscationMetrics.SourceLines(Writer.nullWriter());
+        try (Reader reader = Files.newBufferedReader(input)) {
+            reader.transferTo(originalLines);
         }
+        CompilationUnit cu = StaticJavaParser.parse(input);
+        ObfuscationMetrics.Metrics before = ObfuscationMetrics.calculateSourceCodeMetrics(cu, originalLines);
+
+        String obfName = transform(cu);
+
+        ObfuscationMetrics.SourceLines lines = new ObfuscationMetrics.SourceLines(out);
+        StreamingPrinter.print(cu, lines);
+        ObfuscationMetrics.Metrics after = ObfuscationMetrics.calculateSourceCodeMetrics(cu, lines);
+
+        return new Result(null, obfName, before, after);
     }
 
-    public Result obfuscate(String inputPath) throws FileNotFoundException {
-        NameGenerator.reset();
+    private Result obfuscate(CompilationUnit cu, String originalSource) {
+        names.reset();
 
-        CompilationUnit cu = StaticJavaParser.parse(new File(inputPath));
+        ObfuscationMetrics.Metrics before = ObfuscationMetrics.calculateSourceCodeMetrics(cu, originalSource);
 
-        // 1. Находим публичный класс и переименовываем его
-        ClassOrInterfaceDeclaration topClass = cu
-                .findFirst(ClassOrInterfaceDeclaration.class, ClassOrInterfaceDeclaration::isPublic)
-                .orElseThrow(() -> new IllegalStateException("Public class not found"));
+        String obfName = transform(cu);
 
-        String originalName = topClass.getNameAsString();
-        String obfName = originalName + "_obf";
+        // 9. Получаем исходный код
+        String sourceCode = cu.toString();
 
-        topClass.setName(obfName);
-        topClass.getConstructors().forEach(ctor -> ctor.setName(obfName));
+        ObfuscationMetrics.Metrics after = ObfuscationMetrics.calculateSourceCodeMetrics(cu, sourceCode);
+
+        return new Result(sourceCode, obfName, before, after);
+    }
+
+    /**
+     * Применяет AST-преобразования к уже разобранному CompilationUnit.
+     * Возвращает имя основного класса после обфускации.
+     */
+    public String transform(CompilationUnit cu) {
+        String className;
+        List<ClassOrInterfaceDeclaration> fakeMethodTargets;
+
+        // Нагретость определяется по исходным именам, до переименования класса
+        Map<MethodDeclaration, HotMethodProfile.Heat> heat = new IdentityHashMap<>();
+        if (!profile.isEmpty()) {
+            cu.findAll(MethodDeclaration.class).forEach(md -> heat.put(md, heatOf(md)));
+        }
+
+        if (renameClass) {
+            // 1. Находим публичный класс и переименовываем его
+            ClassOrInterfaceDeclaration topClass = cu
+                    .findFirst(ClassOrInterfaceDeclaration.class, ClassOrInterfaceDeclaration::isPublic)
+                    .orElseThrow(() -> new IllegalStateException("Public class not found"));
+
+            String originalName = topClass.getNameAsString();
+            String obfName = originalName + "_obf";
+
+            topClass.setName(obfName);
+            topClass.getConstructors().forEach(ctor -> ctor.setName(obfName));
+
+            className = obfName;
+            fakeMethodTargets = List.of(topClass);
+        } else {
+            // 1. Имена сохраняются, ложные методы получают все классы верхнего уровня
+            className = cu.getPrimaryTypeName().orElse(null);
+            fakeMethodTargets = new ArrayList<>();
+            cu.getTypes().forEach(type -> {
+                if (type instanceof ClassOrInterfaceDeclaration
+                        && !((ClassOrInterfaceDeclaration) type).isInterface()) {
+                    fakeMethodTargets.add((ClassOrInterfaceDeclaration) type);
+                }
+            });
+        }
 
         // 2. Обфускация методов
         cu.findAll(MethodDeclaration.class).forEach(md -> {
@@ -72,7 +194,7 @@ public class SimpleObfuscator {
             // 2.1. Параметры
             for (Parameter p : md.getParameters()) {
                 String oldName = p.getNameAsString();
-                String newName = NameGenerator.nextShortName();
+                String newName = names.nextShortName();
                 localMap.put(oldName, newName);
                 p.setName(newName);
             }
@@ -81,7 +203,7 @@ public class SimpleObfuscator {
             md.findAll(VariableDeclarator.class).forEach(vd -> {
                 String oldName = vd.getNameAsString();
                 if (!localMap.containsKey(oldName)) {
-                    String newName = NameGenerator.nextShortName();
+                    String newName = names.nextShortName();
                     localMap.put(oldName, newName);
                     vd.setName(newName);
                 }
@@ -96,13 +218,22 @@ public class SimpleObfuscator {
                 }
             });
 
-            // 3. Обфускация циклов (40% методов)
-            if (random.nextDouble() > 0.6) {
-                obfuscateLoops(md);
+            // Горячие методы только переименовываются; в теплые добавляются лишь
+            // фиктивные переменные и комментарии, которые JIT убирает без следа
+            HotMethodProfile.Heat methodHeat = heat.getOrDefault(md, HotMethodProfile.Heat.COLD);
+            if (methodHeat == HotMethodProfile.Heat.HOT) {
+                return;
             }
 
-            // 4. Добавляем ложный код ВНУТРИ метода
-            addFakeCodeInsideMethod(md);
+            if (methodHeat == HotMethodProfile.Heat.COLD) {
+                // 3. Обфускация циклов (40% методов)
+                if (random.nextDouble() > 0.6) {
+                    obfuscateLoops(md);
+                }
+
+                // 4. Добавляем ложный код ВНУТРИ метода
+                addFakeCodeInsideMethod(md);
+            }
 
             // 5. Добавляем фиктивные переменные с комментариями
             addDummyVariablesWithComments(md);
@@ -112,15 +243,25 @@ public class SimpleObfuscator {
         });
 
         // 7. Добавляем фиктивные методы в класс
-        addFakeMethods(topClass);
+        fakeMethodTargets.forEach(this::addFakeMethods);
 
         // 8. Добавляем фиктивные импорты
         addFakeImports(cu);
 
-        // 9. Получаем исходный код
-        String sourceCode = cu.toString();
+        return className;
+    }
 
-        return new Result(sourceCode, obfName);
+    private HotMethodProfile.Heat heatOf(MethodDeclaration md) {
+        Node parent = md.getParentNode().orElse(null);
+        while (parent != null && !(parent instanceof TypeDeclaration)) {
+            parent = parent.getParentNode().orElse(null);
+        }
+        if (parent == null) {
+            return HotMethodProfile.Heat.COLD;
+        }
+        return ((TypeDeclaration<?>) parent).getFullyQualifiedName()
+                .map(type -> profile.heat(type, md.getNameAsString()))
+                .orElse(HotMethodProfile.Heat.COLD);
     }
 
     /**
@@ -173,55 +314,35 @@ public class SimpleObfuscator {
         String fakeVar = generateUniqueVarName(existingVars);
         existingVars.add(fakeVar);
 
-        try {
-            Statement fakeStmt = null;
-
-            switch (type) {
-                case 0:
-                    fakeStmt = StaticJavaParser.parseStatement(
-                            "int " + fakeVar + " = " + random.nextInt(100) + ";");
-                    break;
-                case 1:
-                    String timeVar = generateUniqueVarName(existingVars);
-                    existingVars.add(timeVar);
-                    fakeStmt = StaticJavaParser.parseStatement(
-                            "long " + timeVar + " = System.currentTimeMillis();");
-                    break;
-                case 2:
-                    fakeStmt = StaticJavaParser.parseStatement(
-                            "if (false) { System.out.println(\"Never happens\"); }");
-                    break;
-                case 3:
-                    String exVar = generateUniqueVarName(existingVars);
-                    existingVars.add(exVar);
-                    fakeStmt = StaticJavaParser.parseStatement(
-                            "try { int x = 1 / 1; } catch (Exception " + exVar + ") { /* ignore */ }");
-                    break;
-                case 4:
-                    String loopVar = generateUniqueVarName(existingVars);
-                    existingVars.add(loopVar);
-                    fakeStmt = StaticJavaParser.parseStatement(
-                            "for (int " + loopVar + " = 0; " + loopVar + " < " + random.nextInt(5) + "; " + loopVar + "++) { /* empty */ }");
-                    break;
-            }
+        // Ложный код берется из заранее разобранных шаблонов, без запуска парсера
+        Statement fakeStmt = null;
 
-            if (fakeStmt != null && position < body.getStatements().size()) {
-                body.getStatements().add(position, fakeStmt);
-            }
-        } catch (Exception e) {
-            // Простая версия
-            ExpressionStmt simpleStmt = new ExpressionStmt(
-                    new VariableDeclarationExpr(
-                            new VariableDeclarator(
-                                    PrimitiveType.intType(),
-                                    fakeVar,
-                                    new IntegerLiteralExpr(random.nextInt(100))
-                            )
-                    )
-            );
-            if (position < body.getStatements().size()) {
-                body.getStatements().add(position, simpleStmt);
-            }
+        switch (type) {
+            case 0:
+                fakeStmt = DecoyTemplates.intVariable(fakeVar, random.nextInt(100));
+                break;
+            case 1:
+                String timeVar = generateUniqueVarName(existingVars);
+                existingVars.add(timeVar);
+                fakeStmt = DecoyTemplates.timestampVariable(timeVar);
+                break;
+            case 2:
+                fakeStmt = DecoyTemplates.deadBranch();
+                break;
+            case 3:
+                String exVar = generateUniqueVarName(existingVars);
+                existingVars.add(exVar);
+                fakeStmt = DecoyTemplates.swallowedDivision(exVar);
+                break;
+            case 4:
+                String loopVar = generateUniqueVarName(existingVars);
+                existingVars.add(loopVar);
+                fakeStmt = DecoyTemplates.emptyLoop(loopVar, random.nextInt(5));
+                break;
+        }
+
+        if (fakeStmt != null && position < body.getStatements().size()) {
+            body.getStatements().add(position, fakeStmt);
         }
     }
 
@@ -262,7 +383,7 @@ public class SimpleObfuscator {
     private void addFakeCodeAtEnd(BlockStmt body, Set<String> existingVars) {
         int lastReturnIndex = -1;
         for (int i = body.getStatements().size() - 1; i >= 0; i--) {
-            if (body.getStatement(i).toString().contains("return")) {
+            if (containsExit(body.getStatement(i))) {
                 lastReturnIndex = i;
                 break;
             }
@@ -271,27 +392,23 @@ public class SimpleObfuscator {
         if (lastReturnIndex != -1) {
             String fakeVar = generateUniqueVarName(existingVars);
             existingVars.add(fakeVar);
-            try {
-                Statement fakeStmt = StaticJavaParser.parseStatement(
-                        "int " + fakeVar + " = " + body.getStatements().size() + "; // fake counter");
-                body.getStatements().add(lastReturnIndex, fakeStmt);
-            } catch (Exception e) {
-                ExpressionStmt simpleStmt = new ExpressionStmt(
-                        new VariableDeclarationExpr(
-                                new VariableDeclarator(
-                                        PrimitiveType.intType(),
-                                        fakeVar,
-                                        new IntegerLiteralExpr(random.nextInt(100))
-                                )
-                        )
-                );
-                body.getStatements().add(lastReturnIndex, simpleStmt);
-            }
+            Statement fakeStmt = DecoyTemplates.intVariable(
+                    fakeVar, body.getStatements().size(), "fake counter");
+            body.getStatements().add(lastReturnIndex, fakeStmt);
         } else {
             addFakeStatement(body, body.getStatements().size(), existingVars);
         }
     }
 
+    /**
+     * Есть ли в statement return или throw: код после него может оказаться недостижимым
+     */
+    private static boolean containsExit(Statement stmt) {
+        return stmt.isReturnStmt() || stmt.isThrowStmt()
+                || stmt.findFirst(ReturnStmt.class).isPresent()
+                || stmt.findFirst(ThrowStmt.class).isPresent();
+    }
+
     private void addDummyVariablesWithComments(MethodDeclaration md) {
         if (!md.getBody().isPresent()) {
             return;
@@ -312,22 +429,8 @@ public class SimpleObfuscator {
             existingVars.add(varName);
             String comment = DUMMY_COMMENTS.get(random.nextInt(DUMMY_COMMENTS.size()));
 
-            try {
-                String code = "int " + varName + " = " + random.nextInt(1000) + "; // " + comment;
-                Statement stmt = StaticJavaParser.parseStatement(code);
-                body.addStatement(0, stmt);
-            } catch (Exception e) {
-                ExpressionStmt simpleStmt = new ExpressionStmt(
-                        new VariableDeclarationExpr(
-                                new VariableDeclarator(
-                                        PrimitiveType.intType(),
-                                        varName,
-                                        new IntegerLiteralExpr(random.nextInt(100))
-                                )
-                        )
-                );
-                body.addStatement(0, simpleStmt);
-            }
+            Statement stmt = DecoyTemplates.intVariable(varName, random.nextInt(1000), comment);
+            body.addStatement(0, stmt);
         }
     }
 
@@ -338,16 +441,9 @@ public class SimpleObfuscator {
             for (Statement stmt : body.getStatements()) {
                 if (random.nextDouble() > 0.8) {
                     String comment = DUMMY_COMMENTS.get(random.nextInt(DUMMY_COMMENTS.size()));
-                    String stmtStr = stmt.toString();
-                    if (!stmtStr.contains("//")) {
-                        try {
-                            Statement newStmt = StaticJavaParser.parseStatement(
-                                    "// " + comment + "\n" + stmtStr);
-                            int index = body.getStatements().indexOf(stmt);
-                            body.getStatements().set(index, newStmt);
-                        } catch (Exception e) {
-                            // Игнорируем ошибки
-                        }
+                    // Комментарий прикрепляется к узлу, уже существующий не затирается
+                    if (!stmt.getComment().isPresent()) {
+                        stmt.setLineComment(" " + comment);
                     }
                 }
             }
@@ -356,29 +452,18 @@ public class SimpleObfuscator {
 
     private void addFakeMethods(ClassOrInterfaceDeclaration clazz) {
         int count = 1 + random.nextInt(2);
+        // Повтор имени не скомпилируется, а в дереве исходников сломает компиляцию всего дерева
+        Set<String> methodNames = new HashSet<>();
+        clazz.getMethods().forEach(m -> methodNames.add(m.getNameAsString()));
 
         for (int i = 0; i < count; i++) {
-            try {
-                String methodName = "fakeMethod" + random.nextInt(1000);
-                String methodCode =
-                        "private int " + methodName + "() {\n" +
-                                "    int result = " + random.nextInt(100) + ";\n" +
-                                "    for (int i = 0; i < " + (3 + random.nextInt(5)) + "; i++) {\n" +
-                                "        result += i * i;\n" +
-                                "    }\n" +
-                                "    return result;\n" +
-                                "}";
-
-                CompilationUnit tempCu = StaticJavaParser.parse("class Temp { " + methodCode + " }");
-                Optional<MethodDeclaration> fakeMethodOpt = tempCu.findFirst(MethodDeclaration.class);
-
-                if (fakeMethodOpt.isPresent()) {
-                    MethodDeclaration fakeMethod = fakeMethodOpt.get().clone();
-                    clazz.addMember(fakeMethod);
-                }
-            } catch (Exception e) {
-                // Игнорируем ошибки
-            }
+            String methodName;
+            do {
+                methodName = "fakeMethod" + random.nextInt(1000);
+            } while (!methodNames.add(methodName));
+            int initial = random.nextInt(100);
+            int iterations = 3 + random.nextInt(5);
+            clazz.addMember(DecoyTemplates.fakeMethod(methodName, initial, iterations));
         }
     }
 
@@ -410,7 +495,7 @@ public class SimpleObfuscator {
         do {
             varName = prefix + counter++;
             if (counter > 10000) {
-                varName = prefix + "_" + System.currentTimeMillis() % 10000;
+                varName = prefix + "_" + random.nextInt(10000);
                 break;
             }
         } while (existingVars.contains(varName));
@@ -419,23 +504,24 @@ public class SimpleObfuscator {
     }
 
     /**
-     * Обфускация циклов - безопасная реализация
+     * Обфускация циклов - безопасная реализация.
+     * Все преобразования работают напрямую с узлами AST, без печати и повторного разбора.
      */
     private void obfuscateLoops(MethodDeclaration md) {
         if (!md.getBody().isPresent()) {
             return;
         }
 
+        Set<String> existingVars = new HashSet<>();
+        md.findAll(VariableDeclarator.class).forEach(vd -> existingVars.add(vd.getNameAsString()));
+        md.findAll(Parameter.class).forEach(p -> existingVars.add(p.getNameAsString()));
+
         // 1. Обфускация for-циклов
         List<ForStmt> forLoops = md.findAll(ForStmt.class);
 
         for (ForStmt forLoop : forLoops) {
             if (random.nextDouble() > 0.7) { // 30% шанс
-                try {
-                    wrapLoopWithDummy(forLoop);
-                } catch (Exception e) {
-                    // Игнорируем ошибки
-                }
+                wrapLoopWithDummy(forLoop, existingVars);
             }
         }
 
@@ -444,11 +530,7 @@ public class SimpleObfuscator {
 
         for (WhileStmt whileLoop : whileLoops) {
             if (random.nextDouble() > 0.7) { // 30% шанс
-                try {
-                    addPreLoopCode(whileLoop);
-                } catch (Exception e) {
-                    // Игнорируем ошибки
-                }
+                addPreLoopCode(whileLoop, existingVars);
             }
         }
 
@@ -457,11 +539,7 @@ public class SimpleObfuscator {
 
         for (DoStmt doLoop : doLoops) {
             if (random.nextDouble() > 0.7) { // 30% шанс
-                try {
-                    addPostLoopCode(doLoop);
-                } catch (Exception e) {
-                    // Игнорируем ошибки
-                }
+                addPostLoopCode(doLoop, existingVars);
             }
         }
     }
@@ -469,102 +547,60 @@ public class SimpleObfuscator {
     /**
      * Оборачивает цикл фиктивным внешним циклом
      */
-    private void wrapLoopWithDummy(ForStmt forLoop) throws Exception {
-        String wrapperVar = "wrap" + random.nextInt(1000);
-        String dummyVar = "dummy" + random.nextInt(1000);
-
-        String originalLoop = forLoop.toString().trim();
-
-        // Убираем комментарии из начала строки, если есть
-        if (originalLoop.startsWith("//")) {
-            int newlineIndex = originalLoop.indexOf('\n');
-            if (newlineIndex > 0) {
-                originalLoop = originalLoop.substring(newlineIndex + 1).trim();
-            }
+    private void wrapLoopWithDummy(ForStmt forLoop, Set<String> existingVars) {
+        // continue с меткой перешел бы на внешний цикл и изменил поведение
+        if (forLoop.getParentNode().orElse(null) instanceof LabeledStmt) {
+            return;
         }
 
-        String obfuscated =
-                "// Обфусцированный цикл\n" +
-                        "for (int " + wrapperVar + " = 0; " + wrapperVar + " < 1; " + wrapperVar + "++) {\n" +
-                        "    int " + dummyVar + " = " + random.nextInt(100) + ";\n" +
-                        "    " + originalLoop + "\n" +
-                        "}";
+        String wrapperVar = uniqueName("wrap", existingVars);
+        String dummyVar = uniqueName("dummy", existingVars);
+
+        ForStmt wrapper = DecoyTemplates.wrapperLoop(wrapperVar, dummyVar, random.nextInt(100));
+        wrapper.setLineComment(" Обфусцированный цикл");
 
-        Statement newLoop = StaticJavaParser.parseStatement(obfuscated);
-        forLoop.replace(newLoop);
+        // Исходный цикл переносится внутрь обертки как есть, вместе со своим комментарием
+        forLoop.replace(wrapper);
+        wrapper.getBody().asBlockStmt().addStatement(forLoop);
     }
 
     /**
      * Добавляет фиктивный код перед while-циклом
      */
-    private void addPreLoopCode(WhileStmt whileLoop) throws Exception {
-        String dummyVar = "pre" + random.nextInt(1000);
-
-        String condition = whileLoop.getCondition().toString();
-        String body = whileLoop.getBody().toString().trim();
-
-        // Убираем фигурные скобки, если тело - блок
-        if (body.startsWith("{") && body.endsWith("}")) {
-            body = body.substring(1, body.length() - 1).trim();
-        }
-
-        String obfuscated =
-                "// Фиктивный код перед циклом\n" +
-                        "int " + dummyVar + " = " + random.nextInt(100) + ";\n" +
-                        "while (" + condition + ") {\n" +
-                        "    " + body + "\n" +
-                        "}";
-
-        Statement newLoop = StaticJavaParser.parseStatement(obfuscated);
-        whileLoop.replace(newLoop);
+    private void addPreLoopCode(WhileStmt whileLoop, Set<String> existingVars) {
+        insertNextTo(whileLoop, 0, uniqueName("pre", existingVars), "Фиктивный код перед циклом");
     }
 
     /**
      * Добавляет фиктивный код после do-while цикла
      */
-    private void addPostLoopCode(DoStmt doLoop) throws Exception {
-        String dummyVar = "post" + random.nextInt(1000);
-
-        String condition = doLoop.getCondition().toString();
-        String body = doLoop.getBody().toString().trim();
-
-        if (body.startsWith("{") && body.endsWith("}")) {
-            body = body.substring(1, body.length() - 1).trim();
-        }
-
-        String obfuscated =
-                "do {\n" +
-                        "    " + body + "\n" +
-                        "} while (" + condition + ");\n" +
-                        "int " + dummyVar + " = " + random.nextInt(100) + "; // Фиктивная переменная";
-
-        Statement newLoop = StaticJavaParser.parseStatement(obfuscated);
-        doLoop.replace(newLoop);
+    private void addPostLoopCode(DoStmt doLoop, Set<String> existingVars) {
+        insertNextTo(doLoop, 1, uniqueName("post", existingVars), "Фиктивная переменная");
     }
 
     /**
-     * Простая обфускация - преобразование for в while
+     * Вставляет фиктивную переменную в блок рядом с циклом (offset 0 - перед, 1 - после).
+     * Если цикл не лежит непосредственно в блоке, объявлению негде находиться, и он пропускается.
      */
-    private void convertForToWhile(ForStmt forLoop) throws Exception {
-        String init = forLoop.getInitialization().toString().replace(";", "");
-        String condition = forLoop.getCompare().isPresent() ?
-                forLoop.getCompare().get().toString() : "true";
-        String update = forLoop.getUpdate().toString().replace(";", "");
-        String body = forLoop.getBody().toString().trim();
-
-        if (body.startsWith("{") && body.endsWith("}")) {
-            body = body.substring(1, body.length() - 1).trim();
+    private void insertNextTo(Statement loop, int offset, String varName, String comment) {
+        if (!(loop.getParentNode().orElse(null) instanceof BlockStmt)) {
+            return;
         }
+        BlockStmt block = (BlockStmt) loop.getParentNode().get();
+        int index = block.getStatements().indexOf(loop);
+        if (index >= 0) {
+            block.getStatements().add(index + offset,
+                    DecoyTemplates.intVariable(varName, random.nextInt(100), comment));
+        }
+    }
 
-        String whileVersion =
-                "// For преобразован в while\n" +
-                        init + ";\n" +
-                        "while (" + condition + ") {\n" +
-                        "    " + body + "\n" +
-                        "    " + update + ";\n" +
-                        "}";
-
-        Statement newLoop = StaticJavaParser.parseStatement(whileVersion);
-        forLoop.replace(newLoop);
+    private static String uniqueName(String prefix, Set<String> existingVars) {
+        String name;
+        int counter = 0;
+        do {
+            name = prefix + counter++;
+        } while (existingVars.contains(name));
+        existingVars.add(name);
+        return name;
     }
-}
\ No newline at end of file
+}
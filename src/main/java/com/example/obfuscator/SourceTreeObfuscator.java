@@ -0,0 +1,235 @@
+package com.example.obfuscator;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Обфускация целого дерева исходников (source root) за один запуск.
+ *
+ * Этапы работают одновременно и связаны ограниченными очередями: разбор и
+ * AST-преобразования выполняются задачами ForkJoinPool, а печать и запись .java
+ * идут в отдельном потоке, пока пул обрабатывает следующие файлы.
+ * Компиляция - общий барьер: файлы ссылаются друг на друга, поэтому компилируются
+ * одним вызовом javac. После нее ASM-проходы снова распределяются по пулу.
+ */
+public class SourceTreeObfuscator {
+
+    private final ObfuscationOptions options;
+    private final boolean enableAsmObfuscation;
+    private final List<String> compilerOptions;
+
+    public static class Result {
+        public final int sourceFiles;
+        public final int classesWritten;
+        public final List<String> failedFiles;
+        // Диагностика javac, если компиляция не удалась (иначе null)
+        public final String compileErrors;
+
+        public Result(int sourceFiles, int classesWritten, List<String> failedFiles, String compileErrors) {
+            this.sourceFiles = sourceFiles;
+            this.classesWritten = classesWritten;
+            this.failedFiles = failedFiles;
+            this.compileErrors = compileErrors;
+        }
+    }
+
+    /**
+     * Единица компиляции, переходящая между этапами конвейера
+     */
+    private static class Unit {
+        final Path file;
+        final Path relativePath;
+        CompilationUnit cu;
+        Throwable error;
+
+        Unit(Path file, Path relativePath) {
+            this.file = file;
+            this.relativePath = relativePath;
+        }
+    }
+
+    /**
+     * Classpath из options нужен и для компиляции дерева, и для иерархии классов
+     *
+     * @param enableAsmObfuscation false - только AST-обфускация и компиляция, без проходов ASM
+     */
+    public SourceTreeObfuscator(ObfuscationOptions options, boolean enableAsmObfuscation) {
+        this.options = options;
+        this.enableAsmObfuscation = enableAsmObfuscation;
+        this.compilerOptions = options.getClasspath() != null
+                ? List.of("-classpath", options.getClasspath()) : List.of();
+    }
+
+    public Result obfuscate(Path sourceRoot, Path outputDir) throws IOException, InterruptedException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(sourceRoot)) {
+            files = walk.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        Path sourcesOut = outputDir.resolve("src");
+        Path classesOut = outputDir.resolve("classes");
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+
+        // Не больше queueCapacity разобранных деревьев одновременно ждут печати
+        int queueCapacity = options.getThreads() * 4;
+        BlockingQueue<Unit> transformed = new ArrayBlockingQueue<>(queueCapacity);
+        Semaphore inFlight = new Semaphore(queueCapacity);
+
+        ForkJoinPool pool = new ForkJoinPool(options.getThreads());
+        ExecutorService printer = Executors.newSingleThreadExecutor();
+        try {
+            // Этап печати: забирает готовые деревья и пишет исходники, пока пул продолжает разбор
+            Future<Map<String, Path>> printing = printer.submit(() -> {
+                Map<String, Path> sources = new TreeMap<>();
+                for (int i = 0; i < files.size(); i++) {
+                    Unit unit = transformed.take();
+                    inFlight.release();
+                    String key = unit.relativePath.toString().replace('\\', '/').replaceAll("\\.java$", "");
+                    Path target = sourcesOut.resolve(unit.relativePath);
+                    try {
+                        Files.createDirectories(target.getParent());
+                        if (unit.error == null) {
+                            // Дерево печатается прямо в файл, без строки на весь исходник
+                            try (Writer out = Files.newBufferedWriter(target)) {
+                                StreamingPrinter.print(unit.cu, out);
+                            }
+                        } else {
+                            // Файл, который не удалось обфусцировать, переносится как есть,
+                            // чтобы остальное дерево продолжало компилироваться
+                            failed.add(unit.relativePath + ": " + unit.error);
+                            Files.copy(unit.file, target, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                        sources.put(key, target);
+                    } catch (IOException | RuntimeException e) {
+                        // Ошибка одного файла не останавливает этап печати: иначе производитель
+                        // не получит разрешения и будет ждать вечно. Файл переносится как есть
+                        failed.add(unit.relativePath + ": " + e);
+                        try {
+                            Files.copy(unit.file, target, StandardCopyOption.REPLACE_EXISTING);
+                            sources.put(key, target);
+                        } catch (IOException copyError) {
+                            // Без файла компиляция сообщит о недостающем классе
+                        }
+                    }
+                }
+                return sources;
+            });
+
+            // Этапы разбора и AST-преобразований: отдельные задачи пула для каждого файла
+            for (Path file : files) {
+                acquire(inFlight, printing);
+                Unit unit = new Unit(file, sourceRoot.relativize(file));
+                CompletableFuture
+                        .supplyAsync(() -> parse(unit), pool)
+                        .thenApplyAsync(this::transform, pool)
+                        .whenComplete((done, error) -> {
+                            if (error != null) {
+                                unit.error = error.getCause() != null ? error.getCause() : error;
+                            }
+                            transformed.add(unit);
+                        });
+            }
+
+            Map<String, Path> sources = getResult(printing);
+
+            // Этап компиляции: все единицы одним вызовом javac, исходники он читает из записанных файлов
+            InMemoryCompiler.Result compiled = new InMemoryCompiler().compileFiles(sources, compilerOptions);
+            if (!compiled.success) {
+                return new Result(files.size(), 0, failed, compiled.diagnostics);
+            }
+
+            // Иерархия для пересчета stack map frames: скомпилированное дерево и classpath
+            ClassHierarchy hierarchy = new ClassHierarchy();
+            compiled.classes.values().forEach(hierarchy::add);
+            hierarchy.addClasspath(options.getClasspath());
+
+            // Этап ASM: классы обрабатываются параллельно на том же пуле
+            getResult(pool.submit(() -> compiled.classes.entrySet().parallelStream().forEach(e -> {
+                byte[] bytes = e.getValue();
+                if (enableAsmObfuscation) {
+                    try {
+                        bytes = new AsmObfuscator(options, hierarchy).obfuscate(bytes, options.getPasses());
+                    } catch (Exception ex) {
+                        failed.add(e.getKey() + ": " + ex);
+                    }
+                }
+                try {
+                    Path target = classesOut.resolve(e.getKey().replace('.', '/') + ".class");
+                    Files.createDirectories(target.getParent());
+                    Files.write(target, bytes);
+                } catch (IOException ex) {
+                    failed.add(e.getKey() + ": " + ex);
+                }
+            })));
+
+            return new Result(files.size(), compiled.classes.size(), failed, null);
+        } finally {
+            printer.shutdownNow();
+            pool.shutdown();
+        }
+    }
+
+    private Unit parse(Unit unit) {
+        try {
+            unit.cu = StaticJavaParser.parse(unit.file);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return unit;
+    }
+
+    private Unit transform(Unit unit) {
+        // Имена классов сохраняются, чтобы ссылки между файлами остались корректными
+        // С seed генератор файла зависит только от его пути, а не от порядка потоков
+        Random random = options.getSeed().derive(unit.relativePath.toString().replace('\\', '/'));
+        new SimpleObfuscator(false, new NameGenerator(random.nextLong()), options.getProfile(), random).transform(unit.cu);
+        return unit;
+    }
+
+    /**
+     * Ждет места в конвейере. Если этап печати завершился с ошибкой (например,
+     * StackOverflowError на очень глубоком дереве), разрешения уже не вернутся
+     */
+    private static void acquire(Semaphore inFlight, Future<?> printing) throws IOException, InterruptedException {
+        while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+            if (printing.isDone()) {
+                getResult(printing);
+                throw new IOException("Этап печати завершился раньше разбора всех файлов");
+            }
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка конвейера обфускации: " + e.getCause(), e.getCause());
+        }
+    }
+}
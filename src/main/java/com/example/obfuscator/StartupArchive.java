@@ -0,0 +1,157 @@
+package com.example.obfuscator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Архив AppCDS для быстрого старта консольного режима.
+ *
+ * Собранный JAR при каждом запуске загружает и проверяет тысячи классов JavaParser,
+ * ASM и javac; для обфускации одного файла это большая часть времени работы.
+ * Обучающий запуск (--train-cds) выполняет типичную обфускацию встроенного TestClass
+ * в дочерней JVM с -XX:ArchiveClassesAtExit и сохраняет динамический архив CDS.
+ * Архив привязан к JAR (путь, размер, время изменения) и версии JVM: после пересборки
+ * JAR старый архив просто не находится.
+ *
+ * Флаги JVM нельзя задать из манифеста, а перезапуск себя с архивом стоил бы старта
+ * второй JVM. Поэтому обучающий запуск пишет рядом с архивом скрипт запуска, который
+ * передает -XX:SharedArchiveFile первой же JVM; тот же флаг можно задать и через
+ * JAVA_TOOL_OPTIONS.
+ */
+public class StartupArchive {
+
+    // Встроенный пример для обучающего запуска (src/test/java/TestClass.java)
+    private static final String TRAINING_SOURCE = "training/TestClass.java";
+
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    private final Path jar;
+    private final Path archive;
+
+    private StartupArchive(Path jar, Path archive) {
+        this.jar = jar;
+        this.archive = archive;
+    }
+
+    /**
+     * Архив для JAR, из которого запущен обфускатор, или пусто, если он запущен не из JAR:
+     * классы из директорий в архив CDS не попадают
+     */
+    public static Optional<StartupArchive> forCurrentJar() {
+        String classpath = System.getProperty("java.class.path", "");
+        if (!classpath.toLowerCase().endsWith(".jar") || classpath.contains(java.io.File.pathSeparator)) {
+            return Optional.empty();
+        }
+        Path jar = Paths.get(classpath).toAbsolutePath().normalize();
+        try {
+            String identity = jar + ";" + Files.size(jar) + ";" + Files.getLastModifiedTime(jar).toMillis()
+                    + ";" + System.getProperty("java.vm.version");
+            String key = ObfuscationCache.digest(identity.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+            return Optional.of(new StartupArchive(jar,
+                    ObfuscationCache.defaultDirectory().resolve("cds").resolve(key + ".jsa")));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Path getArchive() {
+        return archive;
+    }
+
+    public boolean exists() {
+        return Files.isRegularFile(archive);
+    }
+
+    /**
+     * Скрипт запуска этого JAR с архивом: obfuscator (sh) или obfuscator.cmd в Windows
+     */
+    public Path getLauncher() {
+        return archive.resolveSibling(WINDOWS ? "obfuscator.cmd" : "obfuscator");
+    }
+
+    /**
+     * Флаг JVM, который подключает архив
+     */
+    public String getJvmOption() {
+        return "-XX:SharedArchiveFile=" + archive;
+    }
+
+    /**
+     * Обучающий запуск: обфускация встроенного примера всеми проходами
+     * в дочерней JVM, которая при выходе записывает архив
+     */
+    public void train() throws IOException, InterruptedException {
+        Path work = Files.createTempDirectory("obfuscator-cds");
+        try {
+            Path source = work.resolve("TestClass.java");
+            try (InputStream in = StartupArchive.class.getClassLoader().getResourceAsStream(TRAINING_SOURCE)) {
+                if (in == null) {
+                    throw new IOException("в JAR нет обучающего примера " + TRAINING_SOURCE);
+                }
+                Files.copy(in, source);
+            }
+
+            Files.createDirectories(archive.getParent());
+            Path partial = archive.resolveSibling(archive.getFileName() + ".tmp");
+            Files.deleteIfExists(partial);
+            List<String> command = List.of(javaExecutable(),
+                    "-XX:ArchiveClassesAtExit=" + partial,
+                    "-cp", jar.toString(),
+                    ObfuscatorApp.class.getName(),
+                    source.toString(), work.resolve("out").toString(),
+                    "--no-cache", "--loop-obfuscation", "--encrypt-strings", "--hide-calls", "--flatten");
+            int exitCode = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start()
+                    .waitFor();
+            if (exitCode != 0 || !Files.isRegularFile(partial)) {
+                throw new IOException("обучающий запуск завершился с кодом " + exitCode + ", архив не создан");
+            }
+            // Параллельный запуск CLI видит либо готовый архив, либо никакого
+            try {
+                Files.move(partial, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partial, archive, StandardCopyOption.REPLACE_EXISTING);
+            }
+            writeLauncher();
+        } finally {
+            try (Stream<Path> walk = Files.walk(work)) {
+                walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Скрипт последнего обученного JAR: та же JVM, архив и все аргументы скрипта
+     */
+    private void writeLauncher() throws IOException {
+        Path launcher = getLauncher();
+        if (WINDOWS) {
+            Files.writeString(launcher, "@\"" + javaExecutable() + "\" \"" + getJvmOption() + "\" -jar \""
+                    + jar + "\" %*\r\n");
+            return;
+        }
+        Files.writeString(launcher, "#!/bin/sh\nexec " + quote(javaExecutable()) + " " + quote(getJvmOption())
+                + " -jar " + quote(jar.toString()) + " \"$@\"\n");
+        launcher.toFile().setExecutable(true);
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    private static String javaExecutable() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.obfuscator;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.printer.DefaultPrettyPrinterVisitor;
+import com.github.javaparser.printer.configuration.DefaultConfigurationOption;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration.ConfigOption;
+import com.github.javaparser.printer.configuration.Indentation;
+import com.github.javaparser.printer.configuration.PrinterConfiguration;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Печать CompilationUnit прямо в Writer или канал, без строки на весь файл.
+ *
+ * Стандартный принтер JavaParser (cu.toString()) собирает весь файл в одном
+ * StringBuilder. Здесь сначала печатается скелет: объявления типов, а на месте
+ * каждого метода, поля или конструктора - метка. Затем скелет выводится по частям,
+ * и каждая метка заменяется членом класса, напечатанным отдельно с тем же отступом.
+ * В памяти одновременно только скелет и один член класса; текст совпадает с cu.toString().
+ */
+public final class StreamingPrinter {
+
+    // Не встречается в напечатанном Java-коде: управляющие символы печатаются как escape-последовательности
+    private static final char MARKER = '\u0000';
+
+    private StreamingPrinter() {
+    }
+
+    public static void print(CompilationUnit cu, Writer out) throws IOException {
+        PrinterConfiguration configuration = new DefaultPrinterConfiguration();
+        SkeletonVisitor skeletonVisitor = new SkeletonVisitor(configuration);
+        cu.accept(skeletonVisitor, null);
+        String skeleton = skeletonVisitor.toString();
+        Indentation indentation = configuration.get(new DefaultConfigurationOption(ConfigOption.INDENTATION))
+                .map(option -> option.<Indentation>asValue())
+                .orElseThrow();
+        int indentWidth = Math.max(1, indentation.getIndent().length());
+
+        int position = 0;
+        for (int index = 0; index < skeletonVisitor.members.size(); index++) {
+            int marker = skeleton.indexOf(MARKER, position);
+            int lineStart = skeleton.lastIndexOf('\n', marker) + 1;
+            out.write(skeleton, position, lineStart - position);
+
+            // Член класса печатается с отступом, с которым в скелете стоит его метка
+            MemberVisitor memberVisitor = new MemberVisitor(configuration, (marker - lineStart) / indentWidth);
+            skeletonVisitor.members.get(index).accept(memberVisitor, null);
+            out.write(memberVisitor.toString());
+
+            position = skeleton.indexOf(MARKER, marker + 1) + 1;
+        }
+        out.write(skeleton, position, skeleton.length() - position);
+        out.flush();
+    }
+
+    /**
+     * Печать в канал в UTF-8
+     */
+    public static void print(CompilationUnit cu, WritableByteChannel channel) throws IOException {
+        Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        print(cu, out);
+    }
+
+    /**
+     * Печатает типы как обычно, а вместо остальных членов классов - метки с номером
+     */
+    private static final class SkeletonVisitor extends DefaultPrettyPrinterVisitor {
+        final List<Node> members = new ArrayList<>();
+
+        SkeletonVisitor(PrinterConfiguration configuration) {
+            super(configuration);
+        }
+
+        @Override
+        protected void printMembers(NodeList<BodyDeclaration<?>> bodyDeclarations, Void arg) {
+            for (BodyDeclaration<?> member : bodyDeclarations) {
+                printer.println();
+                if (member instanceof TypeDeclaration) {
+                    // Вложенный тип тоже раскладывается на члены, иначе большой вложенный класс печатался бы целиком
+                    member.accept(this, arg);
+                } else {
+                    printer.print(MARKER + Integer.toString(members.size()) + MARKER);
+                    members.add(member);
+                }
+                printer.println();
+            }
+        }
+    }
+
+    /**
+     * Обычный принтер, начинающий с заданного уровня отступа
+     */
+    private static final class MemberVisitor extends DefaultPrettyPrinterVisitor {
+        MemberVisitor(PrinterConfiguration configuration, int depth) {
+            super(configuration);
+            for (int i = 0; i < depth; i++) {
+                printer.indent();
+            }
+        }
+    }
+}